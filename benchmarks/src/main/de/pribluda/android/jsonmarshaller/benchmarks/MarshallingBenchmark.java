@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.benchmarks;
+
+import com.google.gson.stream.JsonWriter;
+import de.pribluda.android.jsonmarshaller.JSONByteWriter;
+import de.pribluda.android.jsonmarshaller.JSONMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * marshalling of single beans and bean arrays,  through GSON writer and straight into bytes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarshallingBenchmark {
+
+    /**
+     * byte writer reused by benchmark thread,  as it would be in server
+     */
+    @State(Scope.Thread)
+    public static class Sink {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        final JSONByteWriter writer = new JSONByteWriter(out);
+
+        JSONByteWriter reset() {
+            out.reset();
+            writer.reset(out);
+            return writer;
+        }
+    }
+
+    @Benchmark
+    public String marshall(PayloadState state) throws Exception {
+        final StringWriter out = new StringWriter();
+        final JsonWriter writer = new JsonWriter(out);
+        JSONMarshaller.marshall(writer, state.bean);
+        writer.flush();
+        return out.toString();
+    }
+
+    @Benchmark
+    public int marshallBytes(PayloadState state, Sink sink) throws Exception {
+        final JSONByteWriter writer = sink.reset();
+        JSONMarshaller.marshall(writer, state.bean);
+        writer.flush();
+        return sink.out.size();
+    }
+
+    @Benchmark
+    public String marshallArray(PayloadState state) throws Exception {
+        final StringWriter out = new StringWriter();
+        final JsonWriter writer = new JsonWriter(out);
+        JSONMarshaller.marshallArray(writer, state.beans);
+        writer.flush();
+        return out.toString();
+    }
+
+    @Benchmark
+    public int marshallArrayBytes(PayloadState state, Sink sink) throws Exception {
+        final JSONByteWriter writer = sink.reset();
+        JSONMarshaller.marshallArray(writer, state.beans);
+        writer.flush();
+        return sink.out.size();
+    }
+
+    /**
+     * chunks are marshalled on common pool regardless of array length
+     */
+    @Benchmark
+    public String marshallArrayParallel(PayloadState state) throws Exception {
+        final StringWriter out = new StringWriter();
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        JSONMarshaller.marshallArray(out, state.beans, pool, 0, pool.getParallelism());
+        return out.toString();
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.benchmarks;
+
+import java.util.Random;
+
+/**
+ * representative payload shapes.  Contents are generated out of fixed seed,  so every run
+ * measures the same documents
+ */
+public enum Payload {
+    /**
+     * few scalar properties
+     */
+    FLAT(Flat.class) {
+        Object create(Random random) {
+            final Flat flat = new Flat();
+            flat.setId(random.nextLong());
+            flat.setCount(random.nextInt());
+            flat.setRatio(random.nextDouble());
+            flat.setActive(random.nextBoolean());
+            flat.setName(word(random, 12));
+            return flat;
+        }
+    },
+    /**
+     * long chain of nested objects
+     */
+    DEEP(Node.class) {
+        Object create(Random random) {
+            Node node = null;
+            for (int i = 0; i < DEPTH; i++) {
+                final Node parent = new Node();
+                parent.setValue(random.nextInt());
+                parent.setLabel(word(random, 8));
+                parent.setChild(node);
+                node = parent;
+            }
+            return node;
+        }
+    },
+    /**
+     * many scalar properties on one level
+     */
+    WIDE(Wide.class) {
+        Object create(Random random) {
+            final Wide wide = new Wide();
+            wide.setCount0(random.nextInt());
+            wide.setCount1(random.nextInt());
+            wide.setCount2(random.nextInt());
+            wide.setCount3(random.nextInt());
+            wide.setCount4(random.nextInt());
+            wide.setCount5(random.nextInt());
+            wide.setCount6(random.nextInt());
+            wide.setCount7(random.nextInt());
+            wide.setLabel0(word(random, 6));
+            wide.setLabel1(word(random, 6));
+            wide.setLabel2(word(random, 6));
+            wide.setLabel3(word(random, 6));
+            wide.setLabel4(word(random, 6));
+            wide.setLabel5(word(random, 6));
+            wide.setLabel6(word(random, 6));
+            wide.setLabel7(word(random, 6));
+            wide.setRatio0(random.nextDouble());
+            wide.setRatio1(random.nextDouble());
+            wide.setRatio2(random.nextDouble());
+            wide.setRatio3(random.nextDouble());
+            wide.setFlag0(random.nextBoolean());
+            wide.setFlag1(random.nextBoolean());
+            wide.setFlag2(random.nextBoolean());
+            wide.setFlag3(random.nextBoolean());
+            return wide;
+        }
+    },
+    /**
+     * big arrays of primitives
+     */
+    PRIMITIVE_ARRAYS(PrimitiveArrays.class) {
+        Object create(Random random) {
+            final PrimitiveArrays arrays = new PrimitiveArrays();
+            final int[] ints = new int[ARRAY_SIZE];
+            final long[] longs = new long[ARRAY_SIZE];
+            final double[] doubles = new double[ARRAY_SIZE];
+            for (int i = 0; i < ARRAY_SIZE; i++) {
+                ints[i] = random.nextInt();
+                longs[i] = random.nextLong();
+                doubles[i] = random.nextDouble();
+            }
+            arrays.setInts(ints);
+            arrays.setLongs(longs);
+            arrays.setDoubles(doubles);
+            return arrays;
+        }
+    },
+    /**
+     * nested arrays of primitives
+     */
+    MULTIDIMENSIONAL(Multidimensional.class) {
+        Object create(Random random) {
+            final Multidimensional multidimensional = new Multidimensional();
+            final int[][] matrix = new int[MATRIX_SIZE][MATRIX_SIZE];
+            for (int[] row : matrix) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = random.nextInt(1000);
+                }
+            }
+            final double[][][] cube = new double[CUBE_SIZE][CUBE_SIZE][CUBE_SIZE];
+            for (double[][] plane : cube) {
+                for (double[] row : plane) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = random.nextDouble();
+                    }
+                }
+            }
+            multidimensional.setMatrix(matrix);
+            multidimensional.setCube(cube);
+            return multidimensional;
+        }
+    },
+    /**
+     * mostly strings,  with characters to be escaped and beyond ASCII
+     */
+    STRINGS(Strings.class) {
+        Object create(Random random) {
+            final Strings strings = new Strings();
+            final String[] words = new String[STRING_COUNT];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = word(random, 4 + random.nextInt(16));
+            }
+            final StringBuilder text = new StringBuilder();
+            for (int i = 0; i < STRING_COUNT; i++) {
+                text.append(words[i]).append(i % 10 == 9 ? "\n" : " ");
+            }
+            strings.setWords(words);
+            strings.setText(text.toString());
+            return strings;
+        }
+    };
+
+    static final int DEPTH = 32;
+    static final int ARRAY_SIZE = 10000;
+    static final int MATRIX_SIZE = 100;
+    static final int CUBE_SIZE = 20;
+    static final int STRING_COUNT = 1000;
+
+    /**
+     * mostly latin letters,  sometimes quote,  backslash,  umlaut or cyrillic letter
+     */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+            + "abcdefghijklmnopqrstuvwxyz\"\\\u00e4\u00f6\u00fc\u0436\u044f";
+
+    private final Class type;
+
+    Payload(Class type) {
+        this.type = type;
+    }
+
+    /**
+     * @return bean class of payload
+     */
+    public Class type() {
+        return type;
+    }
+
+    /**
+     * create payload bean
+     *
+     * @param random source of contents
+     * @return
+     */
+    abstract Object create(Random random);
+
+    static String word(Random random, int length) {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * few scalar properties
+     */
+    public static class Flat {
+        private long id;
+        private int count;
+        private double ratio;
+        private boolean active;
+        private String name;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * link of nested chain
+     */
+    public static class Node {
+        private int value;
+        private String label;
+        private Node child;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public Node getChild() {
+            return child;
+        }
+
+        public void setChild(Node child) {
+            this.child = child;
+        }
+    }
+
+    /**
+     * many properties on one level
+     */
+    public static class Wide {
+        private int count0;
+        private String label0;
+        private int count1;
+        private String label1;
+        private int count2;
+        private String label2;
+        private int count3;
+        private String label3;
+        private int count4;
+        private String label4;
+        private int count5;
+        private String label5;
+        private int count6;
+        private String label6;
+        private int count7;
+        private String label7;
+        private double ratio0;
+        private boolean flag0;
+        private double ratio1;
+        private boolean flag1;
+        private double ratio2;
+        private boolean flag2;
+        private double ratio3;
+        private boolean flag3;
+
+        public int getCount0() {
+            return count0;
+        }
+
+        public void setCount0(int count0) {
+            this.count0 = count0;
+        }
+
+        public String getLabel0() {
+            return label0;
+        }
+
+        public void setLabel0(String label0) {
+            this.label0 = label0;
+        }
+
+        public int getCount1() {
+            return count1;
+        }
+
+        public void setCount1(int count1) {
+            this.count1 = count1;
+        }
+
+        public String getLabel1() {
+            return label1;
+        }
+
+        public void setLabel1(String label1) {
+            this.label1 = label1;
+        }
+
+        public int getCount2() {
+            return count2;
+        }
+
+        public void setCount2(int count2) {
+            this.count2 = count2;
+        }
+
+        public String getLabel2() {
+            return label2;
+        }
+
+        public void setLabel2(String label2) {
+            this.label2 = label2;
+        }
+
+        public int getCount3() {
+            return count3;
+        }
+
+        public void setCount3(int count3) {
+            this.count3 = count3;
+        }
+
+        public String getLabel3() {
+            return label3;
+        }
+
+        public void setLabel3(String label3) {
+            this.label3 = label3;
+        }
+
+        public int getCount4() {
+            return count4;
+        }
+
+        public void setCount4(int count4) {
+            this.count4 = count4;
+        }
+
+        public String getLabel4() {
+            return label4;
+        }
+
+        public void setLabel4(String label4) {
+            this.label4 = label4;
+        }
+
+        public int getCount5() {
+            return count5;
+        }
+
+        public void setCount5(int count5) {
+            this.count5 = count5;
+        }
+
+        public String getLabel5() {
+            return label5;
+        }
+
+        public void setLabel5(String label5) {
+            this.label5 = label5;
+        }
+
+        public int getCount6() {
+            return count6;
+        }
+
+        public void setCount6(int count6) {
+            this.count6 = count6;
+        }
+
+        public String getLabel6() {
+            return label6;
+        }
+
+        public void setLabel6(String label6) {
+            this.label6 = label6;
+        }
+
+        public int getCount7() {
+            return count7;
+        }
+
+        public void setCount7(int count7) {
+            this.count7 = count7;
+        }
+
+        public String getLabel7() {
+            return label7;
+        }
+
+        public void setLabel7(String label7) {
+            this.label7 = label7;
+        }
+
+        public double getRatio0() {
+            return ratio0;
+        }
+
+        public void setRatio0(double ratio0) {
+            this.ratio0 = ratio0;
+        }
+
+        public boolean isFlag0() {
+            return flag0;
+        }
+
+        public void setFlag0(boolean flag0) {
+            this.flag0 = flag0;
+        }
+
+        public double getRatio1() {
+            return ratio1;
+        }
+
+        public void setRatio1(double ratio1) {
+            this.ratio1 = ratio1;
+        }
+
+        public boolean isFlag1() {
+            return flag1;
+        }
+
+        public void setFlag1(boolean flag1) {
+            this.flag1 = flag1;
+        }
+
+        public double getRatio2() {
+            return ratio2;
+        }
+
+        public void setRatio2(double ratio2) {
+            this.ratio2 = ratio2;
+        }
+
+        public boolean isFlag2() {
+            return flag2;
+        }
+
+        public void setFlag2(boolean flag2) {
+            this.flag2 = flag2;
+        }
+
+        public double getRatio3() {
+            return ratio3;
+        }
+
+        public void setRatio3(double ratio3) {
+            this.ratio3 = ratio3;
+        }
+
+        public boolean isFlag3() {
+            return flag3;
+        }
+
+        public void setFlag3(boolean flag3) {
+            this.flag3 = flag3;
+        }
+    }
+
+    /**
+     * big primitive arrays
+     */
+    public static class PrimitiveArrays {
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+
+        public int[] getInts() {
+            return ints;
+        }
+
+        public void setInts(int[] ints) {
+            this.ints = ints;
+        }
+
+        public long[] getLongs() {
+            return longs;
+        }
+
+        public void setLongs(long[] longs) {
+            this.longs = longs;
+        }
+
+        public double[] getDoubles() {
+            return doubles;
+        }
+
+        public void setDoubles(double[] doubles) {
+            this.doubles = doubles;
+        }
+    }
+
+    /**
+     * nested primitive arrays
+     */
+    public static class Multidimensional {
+        private int[][] matrix;
+        private double[][][] cube;
+
+        public int[][] getMatrix() {
+            return matrix;
+        }
+
+        public void setMatrix(int[][] matrix) {
+            this.matrix = matrix;
+        }
+
+        public double[][][] getCube() {
+            return cube;
+        }
+
+        public void setCube(double[][][] cube) {
+            this.cube = cube;
+        }
+    }
+
+    /**
+     * string heavy document
+     */
+    public static class Strings {
+        private String[] words;
+        private String text;
+
+        public String[] getWords() {
+            return words;
+        }
+
+        public void setWords(String[] words) {
+            this.words = words;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+}
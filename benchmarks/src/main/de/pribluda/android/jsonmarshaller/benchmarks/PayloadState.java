@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.benchmarks;
+
+import com.google.gson.stream.JsonWriter;
+import de.pribluda.android.jsonmarshaller.JSONMarshaller;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * payload beans and their JSON form,  prepared once per trial and shared by all threads
+ */
+@State(Scope.Benchmark)
+public class PayloadState {
+    /**
+     * beans in array benchmarks
+     */
+    static final int ARRAY_LENGTH = 100;
+    private static final long SEED = 20101010L;
+
+    @Param
+    public Payload payload;
+
+    Object bean;
+    Object[] beans;
+    String json;
+    byte[] jsonBytes;
+    String arrayJson;
+    byte[] arrayJsonBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Random random = new Random(SEED);
+        bean = payload.create(random);
+        beans = (Object[]) Array.newInstance(payload.type(), ARRAY_LENGTH);
+        for (int i = 0; i < beans.length; i++) {
+            beans[i] = payload.create(random);
+        }
+
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        JSONMarshaller.marshall(writer, bean);
+        writer.flush();
+        json = out.toString();
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+
+        out = new StringWriter();
+        writer = new JsonWriter(out);
+        JSONMarshaller.marshallArray(writer, beans);
+        writer.flush();
+        arrayJson = out.toString();
+        arrayJsonBytes = arrayJson.getBytes(StandardCharsets.UTF_8);
+    }
+}
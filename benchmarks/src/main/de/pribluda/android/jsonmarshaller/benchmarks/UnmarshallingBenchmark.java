@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.benchmarks;
+
+import com.google.gson.stream.JsonReader;
+import de.pribluda.android.jsonmarshaller.JSONByteReader;
+import de.pribluda.android.jsonmarshaller.JSONUnmarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * unmarshalling of single beans and bean arrays,  out of characters through GSON reader
+ * and straight out of UTF-8 bytes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnmarshallingBenchmark {
+
+    @Benchmark
+    public Object unmarshall(PayloadState state) throws Exception {
+        return JSONUnmarshaller.unmarshall(new JsonReader(new StringReader(state.json)), state.payload.type());
+    }
+
+    @Benchmark
+    public Object unmarshallBytes(PayloadState state) throws Exception {
+        return JSONUnmarshaller.unmarshall(new JSONByteReader(state.jsonBytes), state.payload.type());
+    }
+
+    @Benchmark
+    public List unmarshallArray(PayloadState state) throws Exception {
+        return JSONUnmarshaller.unmarshallArray(new JsonReader(new StringReader(state.arrayJson)), state.payload.type());
+    }
+
+    @Benchmark
+    public List unmarshallArrayBytes(PayloadState state) throws Exception {
+        return JSONUnmarshaller.unmarshallArray(new JSONByteReader(state.arrayJsonBytes), state.payload.type());
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * generates reflection free JSONCodec implementations for beans annotated with @JSONBean.
+ * Getters and setters are discovered by the same rules JSONMarshaller and JSONUnmarshaller use
+ * at runtime,  so generated code produces and accepts the same JSON.
+ */
+@SupportedAnnotationTypes(JSONBeanProcessor.ANNOTATION)
+public class JSONBeanProcessor extends AbstractProcessor {
+    static final String ANNOTATION = "de.pribluda.android.jsonmarshaller.JSONBean";
+    /**
+     * shall be the same as JSONCodec.SUFFIX
+     */
+    static final String SUFFIX = "$$JSONCodec";
+
+    private static final String GETTER_PREFIX = "get";
+    private static final String IS_PREFIX = "is";
+    private static final String SETTER_PREFIX = "set";
+
+    private static final String EXCEPTIONS = "java.io.IOException, java.lang.reflect.InvocationTargetException, java.lang.IllegalAccessException, java.lang.NoSuchMethodException";
+
+    /**
+     * how value of certain type is written and read
+     */
+    enum Kind {
+        STRING, CHARACTER, BOOLEAN, NUMBER, OTHER_NUMBER, OTHER
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@JSONBean is applicable only to classes");
+                } else if (!isAccessible((TypeElement) element)) {
+                    error(element, "@JSONBean class must not be private");
+                } else {
+                    try {
+                        generate((TypeElement) element);
+                    } catch (IOException e) {
+                        error(element, "could not write codec: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * write codec source for bean class
+     *
+     * @param bean
+     * @throws IOException
+     */
+    private void generate(TypeElement bean) throws IOException {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(bean).getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(bean).toString();
+        final String codecName = (packageName.length() == 0 ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        final String beanType = erasure(bean.asType());
+
+        final List<ExecutableElement> getters = new ArrayList<ExecutableElement>();
+        final Map<String, ExecutableElement> setters = new LinkedHashMap<String, ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(bean))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            if (isGetter(method)) {
+                getters.add(method);
+            } else if (isSetter(method) && !setters.containsKey(method.getSimpleName().toString())) {
+                setters.put(method.getSimpleName().toString(), method);
+            }
+        }
+
+        final PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+                packageName.length() == 0 ? codecName : packageName + "." + codecName, bean).openWriter());
+        try {
+            if (packageName.length() > 0) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * generated by " + getClass().getName() + ",  do not edit");
+            out.println(" */");
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class " + codecName + " implements de.pribluda.android.jsonmarshaller.JSONCodec<" + beanType + "> {");
+            // property names are encoded once per codec
+            for (int i = 0; i < getters.size(); i++) {
+                out.println("    private static final de.pribluda.android.jsonmarshaller.JSONName NAME_" + i
+                        + " = de.pribluda.android.jsonmarshaller.JSONName.of(" + literal(propertize(getters.get(i).getSimpleName().toString())) + ");");
+            }
+            out.println();
+
+            out.println("    public " + beanType + " newInstance() throws java.lang.NoSuchMethodException {");
+            if (isInstantiable(bean)) {
+                out.println("        return new " + beanType + "();");
+            } else {
+                out.println("        throw new java.lang.NoSuchMethodException(" + literal(binaryName + ".<init>()") + ");");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    public int marshallProperties(de.pribluda.android.jsonmarshaller.JSONOutput writer, " + beanType + " bean) throws " + EXCEPTIONS + " {");
+            for (int i = 0; i < getters.size(); i++) {
+                writeGetter(out, getters.get(i), returnType(bean, getters.get(i)), "NAME_" + i);
+            }
+            out.println("        return " + getters.size() + ";");
+            out.println("    }");
+            out.println();
+
+            out.println("    public boolean unmarshallProperty(de.pribluda.android.jsonmarshaller.JSONInput reader, java.lang.String name, " + beanType + " bean) throws " + EXCEPTIONS + ", java.lang.InstantiationException {");
+            out.println("        switch (name) {");
+            for (ExecutableElement setter : setters.values()) {
+                writeSetter(out, setter, parameterType(bean, setter));
+            }
+            out.println("            default:");
+            out.println("                return false;");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * write name and value of single getter
+     */
+    private void writeGetter(PrintWriter out, ExecutableElement getter, TypeMirror type, String name) {
+        final String call = "bean." + getter.getSimpleName() + "()";
+        out.println("        writer.name(" + name + ");");
+        final Kind kind = kind(type);
+        if (type.getKind().isPrimitive()) {
+            switch (kind) {
+                case CHARACTER:
+                    out.println("        writer.value(java.lang.String.valueOf(" + call + "));");
+                    break;
+                case BOOLEAN:
+                    out.println("        writer.value(" + call + ");");
+                    break;
+                default:
+                    if (type.getKind() == TypeKind.DOUBLE) {
+                        out.println("        writer.value(" + call + ");");
+                    } else if (type.getKind() == TypeKind.FLOAT) {
+                        // float shall keep its own string representation
+                        out.println("        writer.value((java.lang.Number) " + call + ");");
+                    } else {
+                        out.println("        writer.value((long) " + call + ");");
+                    }
+            }
+            return;
+        }
+
+        final String value;
+        switch (kind) {
+            case STRING:
+                value = "value";
+                break;
+            case CHARACTER:
+                value = "value.toString()";
+                break;
+            case BOOLEAN:
+                value = "value.booleanValue()";
+                break;
+            case NUMBER:
+            case OTHER_NUMBER:
+                value = "(java.lang.Number) value";
+                break;
+            default:
+                out.println("        de.pribluda.android.jsonmarshaller.JSONMarshaller.marshallValue(writer, " + call + ");");
+                return;
+        }
+        out.println("        {");
+        out.println("            final " + erasure(type) + " value = " + call + ";");
+        out.println("            if (value == null) {");
+        out.println("                writer.nullValue();");
+        out.println("            } else {");
+        out.println("                writer.value(" + value + ");");
+        out.println("            }");
+        out.println("        }");
+    }
+
+    /**
+     * write switch case for setter,  scalar values are read directly, everything else
+     * is delegated to unmarshaller
+     */
+    private void writeSetter(PrintWriter out, ExecutableElement setter, TypeMirror type) {
+        final List<String> keys = keys(setter.getSimpleName().toString().substring(SETTER_PREFIX.length()));
+        if (keys.isEmpty()) {
+            // no JSON key can ever address this setter
+            return;
+        }
+        for (String key : keys) {
+            out.println("            case " + literal(key) + ":");
+        }
+        final String call = "bean." + setter.getSimpleName();
+        final Kind kind = kind(type);
+        if (kind != Kind.OTHER && kind != Kind.OTHER_NUMBER) {
+            out.println("                switch (reader.peek()) {");
+            switch (kind) {
+                case STRING:
+                    out.println("                    case STRING:");
+                    out.println("                    case NUMBER:");
+                    out.println("                        " + call + "(reader.nextString());");
+                    out.println("                        return true;");
+                    out.println("                    case BOOLEAN:");
+                    out.println("                        reader.nextBoolean();");
+                    out.println("                        return true;");
+                    break;
+                case CHARACTER:
+                    out.println("                    case STRING:");
+                    out.println("                    case NUMBER: {");
+                    out.println("                        final java.lang.String value = reader.nextString();");
+                    out.println("                        if (value.length() > 0) {");
+                    out.println("                            " + call + "(value.charAt(0));");
+                    out.println("                        }");
+                    out.println("                        return true;");
+                    out.println("                    }");
+                    break;
+                case BOOLEAN:
+                    out.println("                    case BOOLEAN:");
+                    out.println("                        " + call + "(reader.nextBoolean());");
+                    out.println("                        return true;");
+                    out.println("                    case STRING:");
+                    out.println("                    case NUMBER:");
+                    out.println("                        " + call + "(java.lang.Boolean.valueOf(reader.nextString()));");
+                    out.println("                        return true;");
+                    break;
+                default:
+                    out.println("                    case STRING:");
+                    out.println("                    case NUMBER:");
+                    out.println("                        " + call + "(" + parser(boxed(type)) + "(reader.nextString()));");
+                    out.println("                        return true;");
+                    out.println("                    case BOOLEAN:");
+                    out.println("                        reader.nextBoolean();");
+                    out.println("                        return true;");
+            }
+            out.println("                    default:");
+            out.println("                        break;");
+            out.println("                }");
+        }
+        out.println("                {");
+        out.println("                    final java.lang.Object value = de.pribluda.android.jsonmarshaller.JSONUnmarshaller.unmarshallProperty(reader, " + erasure(type) + ".class);");
+        out.println("                    if (value != null) {");
+        out.println("                        " + call + "((" + boxed(type) + ") value);");
+        out.println("                    }");
+        out.println("                }");
+        out.println("                return true;");
+    }
+
+    /**
+     * same rules as JSONMarshaller uses
+     */
+    private static boolean isGetter(ExecutableElement method) {
+        final String name = method.getSimpleName().toString();
+        return (name.startsWith(GETTER_PREFIX) && name.length() > GETTER_PREFIX.length() || name.startsWith(IS_PREFIX) && name.length() > IS_PREFIX.length())
+                && method.getParameters().isEmpty()
+                && method.getReturnType().getKind() != TypeKind.VOID
+                && !name.equals("getClass");
+    }
+
+    /**
+     * same rules as JSONUnmarshaller uses
+     */
+    private static boolean isSetter(ExecutableElement method) {
+        final String name = method.getSimpleName().toString();
+        return name.startsWith(SETTER_PREFIX) && name.length() > SETTER_PREFIX.length() && method.getParameters().size() == 1;
+    }
+
+    /**
+     * convert method name to property,  as JSONMarshaller.propertize() does
+     */
+    static String propertize(String name) {
+        if (name.startsWith(IS_PREFIX)) {
+            return name.substring(IS_PREFIX.length());
+        }
+        return name.substring(GETTER_PREFIX.length());
+    }
+
+    /**
+     * JSON keys which unmarshaller capitalises to given setter suffix
+     */
+    static List<String> keys(String suffix) {
+        final List<String> keys = new ArrayList<String>();
+        final char first = suffix.charAt(0);
+        if (Character.toUpperCase(first) != first) {
+            return keys;
+        }
+        keys.add(suffix);
+        final char lower = Character.toLowerCase(first);
+        if (lower != first && Character.toUpperCase(lower) == first) {
+            keys.add(lower + suffix.substring(1));
+        }
+        return keys;
+    }
+
+    private Kind kind(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            switch (type.getKind()) {
+                case CHAR:
+                    return Kind.CHARACTER;
+                case BOOLEAN:
+                    return Kind.BOOLEAN;
+                default:
+                    return Kind.NUMBER;
+            }
+        }
+        final String name = erasure(type);
+        if ("java.lang.String".equals(name)) {
+            return Kind.STRING;
+        } else if ("java.lang.Character".equals(name)) {
+            return Kind.CHARACTER;
+        } else if ("java.lang.Boolean".equals(name)) {
+            return Kind.BOOLEAN;
+        } else if ("java.lang.Byte".equals(name) || "java.lang.Short".equals(name) || "java.lang.Integer".equals(name)
+                || "java.lang.Long".equals(name) || "java.lang.Float".equals(name) || "java.lang.Double".equals(name)) {
+            return Kind.NUMBER;
+        } else if (processingEnv.getTypeUtils().isAssignable(type, processingEnv.getElementUtils().getTypeElement("java.lang.Number").asType())) {
+            return Kind.OTHER_NUMBER;
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * parse method of number wrapper
+     */
+    private static String parser(String wrapper) {
+        if ("java.lang.Integer".equals(wrapper)) {
+            return "java.lang.Integer.parseInt";
+        }
+        // all others are named after their type
+        return wrapper + ".parse" + wrapper.substring("java.lang.".length());
+    }
+
+    private TypeMirror returnType(TypeElement bean, ExecutableElement method) {
+        return ((ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) bean.asType(), method)).getReturnType();
+    }
+
+    private TypeMirror parameterType(TypeElement bean, ExecutableElement method) {
+        return ((ExecutableType) processingEnv.getTypeUtils().asMemberOf((DeclaredType) bean.asType(), method)).getParameterTypes().get(0);
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return erasure(type);
+    }
+
+    /**
+     * unmarshaller needs public default constructor
+     */
+    private static boolean isInstantiable(TypeElement bean) {
+        if (bean.getModifiers().contains(Modifier.ABSTRACT)
+                || bean.getNestingKind() == NestingKind.MEMBER && !bean.getModifiers().contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(bean.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * generated code lives in the same package and has to see bean class
+     */
+    private static boolean isAccessible(TypeElement bean) {
+        for (Element element = bean; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * java string literal,  non ascii characters are escaped
+     */
+    static String literal(String value) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
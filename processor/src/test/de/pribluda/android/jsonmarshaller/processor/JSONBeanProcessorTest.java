@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller.processor;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import de.pribluda.android.jsonmarshaller.JSONMarshaller;
+import de.pribluda.android.jsonmarshaller.JSONUnmarshaller;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * compile annotated bean with processor and check generated codec
+ */
+public class JSONBeanProcessorTest {
+
+    static final String BEAN = "package sample;\n" +
+            "@de.pribluda.android.jsonmarshaller.JSONBean\n" +
+            "public class Bean {\n" +
+            "    int count; String title; boolean active; char letter; Integer boxed; float ratio; int[] values; Bean nested;\n" +
+            "    public int getCount() { return count; }\n" +
+            "    public void setCount(int count) { this.count = count; }\n" +
+            "    public String getTitle() { return title; }\n" +
+            "    public void setTitle(String title) { this.title = title; }\n" +
+            "    public boolean isActive() { return active; }\n" +
+            "    public void setActive(boolean active) { this.active = active; }\n" +
+            "    public char getLetter() { return letter; }\n" +
+            "    public void setLetter(char letter) { this.letter = letter; }\n" +
+            "    public Integer getBoxed() { return boxed; }\n" +
+            "    public void setBoxed(Integer boxed) { this.boxed = boxed; }\n" +
+            "    public float getRatio() { return ratio; }\n" +
+            "    public void setRatio(float ratio) { this.ratio = ratio; }\n" +
+            "    public int[] getValues() { return values; }\n" +
+            "    public void setValues(int[] values) { this.values = values; }\n" +
+            "    public Bean getNested() { return nested; }\n" +
+            "    public void setNested(Bean nested) { this.nested = nested; }\n" +
+            "}\n";
+
+    File output;
+
+    @Before
+    public void compile() throws Exception {
+        final File sources = Files.createTempDirectory("sources").toFile();
+        output = Files.createTempDirectory("classes").toFile();
+        final File source = new File(sources, "sample/Bean.java");
+        source.getParentFile().mkdirs();
+        final FileWriter writer = new FileWriter(source);
+        writer.write(BEAN);
+        writer.close();
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final int result = compiler.run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", JSONBeanProcessor.class.getName(),
+                "-d", output.getPath(),
+                "-s", output.getPath(),
+                source.getPath());
+        assertEquals("generated code shall compile", 0, result);
+    }
+
+    /**
+     * naming convention shall be followed
+     */
+    @Test
+    public void testThatCodecIsGenerated() throws Exception {
+        assertTrue(new File(output, "sample/Bean" + JSONBeanProcessor.SUFFIX + ".class").exists());
+    }
+
+    /**
+     * marshaller and unmarshaller shall pick up generated code and understand each other
+     */
+    @Test
+    public void testRoundTripThroughGeneratedCodec() throws Exception {
+        final ClassLoader loader = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+        final Class beanClass = loader.loadClass("sample.Bean");
+
+        final Object bean = JSONUnmarshaller.unmarshall(new JsonReader(new StringReader(
+                "{\"count\":5,\"Title\":\"foo\",\"active\":true,\"letter\":\"x\",\"boxed\":\"7\",\"ratio\":0.1," +
+                        "\"values\":[1,2,3],\"nested\":{\"count\":6},\"unknown\":[1,{}]}")), beanClass);
+
+        final StringWriter json = new StringWriter();
+        JSONMarshaller.marshall(new JsonWriter(json), bean);
+
+        final String result = json.toString();
+        assertTrue(result, result.contains("\"Count\":5"));
+        assertTrue(result, result.contains("\"Title\":\"foo\""));
+        assertTrue(result, result.contains("\"Active\":true"));
+        assertTrue(result, result.contains("\"Letter\":\"x\""));
+        assertTrue(result, result.contains("\"Boxed\":7"));
+        assertTrue(result, result.contains("\"Ratio\":0.1"));
+        assertTrue(result, result.contains("\"Values\":[1,2,3]"));
+        assertTrue(result, result.contains("\"Count\":6"));
+
+        assertEquals(Arrays.toString(new int[]{1, 2, 3}), Arrays.toString((int[]) beanClass.getMethod("getValues").invoke(bean)));
+    }
+
+    /**
+     * keys shall follow unmarshaller capitalisation rules
+     */
+    @Test
+    public void testKeyCapitalisation() {
+        assertEquals(Arrays.asList("Foo", "foo"), JSONBeanProcessor.keys("Foo"));
+        assertEquals(Arrays.asList("_foo"), JSONBeanProcessor.keys("_foo"));
+        assertTrue(JSONBeanProcessor.keys("foo").isEmpty());
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+
+/**
+ * builds fast property accessors out of getter and setter methods.  Preferred way is
+ * lambda generated by LambdaMetafactory, which can be inlined by JIT as ordinary code.
+ * If this is not possible (bean class not visible from our class loader)  we fall back to
+ * method handles,  and to plain reflection where even those are not available (older android)
+ */
+final class Accessors {
+
+    /**
+     * reads property value from bean
+     */
+    interface ReadAccess {
+        Object get(Object bean) throws Throwable;
+    }
+
+    /**
+     * writes property value to bean
+     */
+    interface WriteAccess {
+        void set(Object bean, Object value) throws Throwable;
+    }
+
+    // primitive accesses, these exist only as lambdas and spare boxing.
+    // integral getters are widened to long
+
+    interface LongReadAccess {
+        long get(Object bean) throws Throwable;
+    }
+
+    interface DoubleReadAccess {
+        double get(Object bean) throws Throwable;
+    }
+
+    interface BooleanReadAccess {
+        boolean get(Object bean) throws Throwable;
+    }
+
+    interface CharReadAccess {
+        char get(Object bean) throws Throwable;
+    }
+
+    interface IntWriteAccess {
+        void set(Object bean, int value) throws Throwable;
+    }
+
+    interface LongWriteAccess {
+        void set(Object bean, long value) throws Throwable;
+    }
+
+    interface DoubleWriteAccess {
+        void set(Object bean, double value) throws Throwable;
+    }
+
+    interface FloatWriteAccess {
+        void set(Object bean, float value) throws Throwable;
+    }
+
+    interface ShortWriteAccess {
+        void set(Object bean, short value) throws Throwable;
+    }
+
+    interface ByteWriteAccess {
+        void set(Object bean, byte value) throws Throwable;
+    }
+
+    interface BooleanWriteAccess {
+        void set(Object bean, boolean value) throws Throwable;
+    }
+
+    interface CharWriteAccess {
+        void set(Object bean, char value) throws Throwable;
+    }
+
+    static final HashMap<Class, Class> wrappers = new HashMap<Class, Class>();
+
+    static {
+        wrappers.put(Integer.TYPE, Integer.class);
+        wrappers.put(Long.TYPE, Long.class);
+        wrappers.put(Double.TYPE, Double.class);
+        wrappers.put(Float.TYPE, Float.class);
+        wrappers.put(Boolean.TYPE, Boolean.class);
+        wrappers.put(Character.TYPE, Character.class);
+        wrappers.put(Short.TYPE, Short.class);
+        wrappers.put(Byte.TYPE, Byte.class);
+        wrappers.put(Void.TYPE, Void.class);
+    }
+
+    private Accessors() {
+    }
+
+    /**
+     * spin lambda implementing single method access interface by calling bean method.
+     * first parameter of interface method is bean,  object parameters and return value
+     * are cast to (boxed) types of bean method,  primitive ones must match it.
+     *
+     * @param access access interface
+     * @param method getter or setter
+     * @return lambda, or null if it can not be created
+     */
+    static <A> A lambda(Class<A> access, Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || !isVisible(method)) {
+            return null;
+        }
+        try {
+            final Method sam = access.getMethods()[0];
+            final Class[] parameters = sam.getParameterTypes().clone();
+            parameters[0] = method.getDeclaringClass();
+            for (int i = 1; i < parameters.length; i++) {
+                if (parameters[i] == Object.class) {
+                    parameters[i] = wrap(method.getParameterTypes()[i - 1]);
+                }
+            }
+            final Class returnType = sam.getReturnType() == Object.class ? wrap(method.getReturnType()) : sam.getReturnType();
+
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final CallSite site = LambdaMetafactory.metafactory(lookup, sam.getName(),
+                    MethodType.methodType(access),
+                    MethodType.methodType(sam.getReturnType(), sam.getParameterTypes()),
+                    lookup.unreflect(method),
+                    MethodType.methodType(returnType, parameters));
+            return access.cast(site.getTarget().invoke());
+        } catch (Throwable e) {
+            // not able to spin lambda,  no matter why
+            return null;
+        }
+    }
+
+    /**
+     * create read access for parameterless getter method
+     *
+     * @param method
+     * @return
+     */
+    static ReadAccess reader(final Method method) {
+        final ReadAccess lambda = lambda(ReadAccess.class, method);
+        if (lambda != null) {
+            return lambda;
+        }
+        try {
+            // method handle will do
+            final MethodHandle generic = receiverFirst(method, MethodHandles.lookup().unreflect(method))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            return new ReadAccess() {
+                public Object get(Object bean) throws Throwable {
+                    return (Object) generic.invokeExact(bean);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            // fall through to reflection
+        } catch (LinkageError e) {
+            // no method handles on this platform
+        }
+
+        return new ReadAccess() {
+            public Object get(Object bean) throws Throwable {
+                try {
+                    return method.invoke(bean);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+
+    /**
+     * create write access for single parameter setter method
+     *
+     * @param method
+     * @return
+     */
+    static WriteAccess writer(final Method method) {
+        final WriteAccess lambda = lambda(WriteAccess.class, method);
+        if (lambda != null) {
+            return lambda;
+        }
+        try {
+            // method handle will do
+            final MethodHandle generic = receiverFirst(method, MethodHandles.lookup().unreflect(method))
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return new WriteAccess() {
+                public void set(Object bean, Object value) throws Throwable {
+                    generic.invokeExact(bean, value);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            // fall through to reflection
+        } catch (LinkageError e) {
+            // no method handles on this platform
+        }
+
+        return new WriteAccess() {
+            public void set(Object bean, Object value) throws Throwable {
+                try {
+                    method.invoke(bean, value);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+    }
+
+    /**
+     * static methods are eligible as well,  and just ignore bean they are called on
+     *
+     * @param method
+     * @param handle
+     * @return
+     */
+    private static MethodHandle receiverFirst(Method method, MethodHandle handle) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            return MethodHandles.dropArguments(handle, 0, method.getDeclaringClass());
+        }
+        return handle;
+    }
+
+    /**
+     * generated lambda lives in our class loader and links against bean classes by name,
+     * so everything in method signature has to be visible from here
+     *
+     * @param method
+     * @return
+     */
+    private static boolean isVisible(Method method) {
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            return false;
+        }
+        for (Class type : method.getParameterTypes()) {
+            if (!isVisible(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isVisible(Class clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, Accessors.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param clazz
+     * @return wrapper class for primitives,  class itself otherwise
+     */
+    static Class wrap(Class clazz) {
+        if (clazz.isPrimitive()) {
+            return wrappers.get(clazz);
+        }
+        return clazz;
+    }
+}
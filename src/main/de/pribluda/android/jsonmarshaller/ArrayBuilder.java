@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * growable buffer collecting array elements while their count is not yet known.
+ * Primitive component types have own buffers,  so elements are neither boxed nor copied
+ * one by one -  buffer is trimmed to final array in single copy.
+ * Elements which can not be converted to component type are skipped.
+ * Existing array is only written when element count turns out to match,  otherwise it stays untouched
+ */
+abstract class ArrayBuilder {
+    static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * number of collected elements
+     */
+    int size;
+
+    /**
+     * create builder for arrays of given component type
+     *
+     * @param componentType
+     * @return
+     */
+    static ArrayBuilder create(Class componentType) {
+        return create(componentType, null);
+    }
+
+    /**
+     * create builder reusing existing array.  If element count matches,  elements are copied into
+     * existing array and it comes out itself.  Otherwise fresh array is created
+     *
+     * @param componentType
+     * @param existing      array to be reused,  may be null
+     * @return
+     */
+    static ArrayBuilder create(Class componentType, Object existing) {
+        return create(componentType, existing, null, false);
+    }
+
+    /**
+     * create builder binding only projected properties of object elements
+     *
+     * @param componentType
+     * @param existing      array to be reused,  may be null
+     * @param projection    property paths of elements to be bound,  null binds everything
+     * @param populate      element count is known to match existing object array,  so its elements
+     *                      are populated in place by position
+     * @return
+     */
+    static ArrayBuilder create(Class componentType, Object existing, JSONProjection projection, boolean populate) {
+        if (Integer.TYPE.equals(componentType)) {
+            return new IntBuilder((int[]) existing);
+        } else if (Long.TYPE.equals(componentType)) {
+            return new LongBuilder((long[]) existing);
+        } else if (Double.TYPE.equals(componentType)) {
+            return new DoubleBuilder((double[]) existing);
+        } else if (Float.TYPE.equals(componentType)) {
+            return new FloatBuilder((float[]) existing);
+        } else if (Short.TYPE.equals(componentType)) {
+            return new ShortBuilder((short[]) existing);
+        } else if (Byte.TYPE.equals(componentType)) {
+            return new ByteBuilder((byte[]) existing);
+        } else if (Boolean.TYPE.equals(componentType)) {
+            return new BooleanBuilder((boolean[]) existing);
+        } else if (Character.TYPE.equals(componentType)) {
+            return new CharBuilder((char[]) existing);
+        }
+        return new ObjectBuilder(componentType, (Object[]) existing, projection, populate);
+    }
+
+    /**
+     * read current value from reader and append it
+     *
+     * @param reader
+     */
+    abstract void add(JSONInput reader) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException;
+
+    /**
+     * @return array of collected elements,  exactly sized
+     */
+    abstract Object toArray();
+
+    /**
+     * numbers come as numbers or strings,  everything else is skipped
+     *
+     * @param reader
+     * @return true if numeric value is to be read
+     */
+    static boolean isScalar(JSONInput reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            return true;
+        }
+        reader.skipValue();
+        return false;
+    }
+
+    /**
+     * initial buffer size,  existing array is likely to have expected one
+     */
+    static int capacity(Object existing) {
+        final int length = existing == null ? 0 : Array.getLength(existing);
+        return length > 0 ? length : INITIAL_CAPACITY;
+    }
+
+    static final class IntBuilder extends ArrayBuilder {
+        final int[] existing;
+        int[] buffer;
+
+        IntBuilder(int[] existing) {
+            this.existing = existing;
+            buffer = new int[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final int value;
+                try {
+                    value = reader.nextInt();
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(int.class, reader, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class LongBuilder extends ArrayBuilder {
+        final long[] existing;
+        long[] buffer;
+
+        LongBuilder(long[] existing) {
+            this.existing = existing;
+            buffer = new long[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final long value;
+                try {
+                    value = reader.nextLong();
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(long.class, reader, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class DoubleBuilder extends ArrayBuilder {
+        final double[] existing;
+        double[] buffer;
+
+        DoubleBuilder(double[] existing) {
+            this.existing = existing;
+            buffer = new double[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final double value;
+                try {
+                    value = reader.nextDouble();
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(double.class, reader, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class FloatBuilder extends ArrayBuilder {
+        final float[] existing;
+        float[] buffer;
+
+        FloatBuilder(float[] existing) {
+            this.existing = existing;
+            buffer = new float[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final String raw = reader.nextString();
+                final float value;
+                try {
+                    value = Float.parseFloat(raw);
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(float.class, raw, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class ShortBuilder extends ArrayBuilder {
+        final short[] existing;
+        short[] buffer;
+
+        ShortBuilder(short[] existing) {
+            this.existing = existing;
+            buffer = new short[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final String raw = reader.nextString();
+                final short value;
+                try {
+                    value = Short.parseShort(raw);
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(short.class, raw, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class ByteBuilder extends ArrayBuilder {
+        final byte[] existing;
+        byte[] buffer;
+
+        ByteBuilder(byte[] existing) {
+            this.existing = existing;
+            buffer = new byte[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final String raw = reader.nextString();
+                final byte value;
+                try {
+                    value = Byte.parseByte(raw);
+                } catch (NumberFormatException e) {
+                    throw Metrics.failed(byte.class, raw, e);
+                }
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class BooleanBuilder extends ArrayBuilder {
+        final boolean[] existing;
+        boolean[] buffer;
+
+        BooleanBuilder(boolean[] existing) {
+            this.existing = existing;
+            buffer = new boolean[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            final boolean value;
+            switch (reader.peek()) {
+                case BOOLEAN:
+                    value = reader.nextBoolean();
+                    break;
+                case STRING:
+                case NUMBER:
+                    value = Boolean.valueOf(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    return;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size << 1);
+            }
+            buffer[size++] = value;
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    static final class CharBuilder extends ArrayBuilder {
+        final char[] existing;
+        char[] buffer;
+
+        CharBuilder(char[] existing) {
+            this.existing = existing;
+            buffer = new char[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException {
+            if (isScalar(reader)) {
+                final String value = reader.nextString();
+                // empty strings have no character
+                if (value.length() > 0) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, size << 1);
+                    }
+                    buffer[size++] = value.charAt(0);
+                }
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * objects,  strings, boxed primitives and nested arrays
+     */
+    static final class ObjectBuilder extends ArrayBuilder {
+        final Class componentType;
+        final Object[] existing;
+        /**
+         * element count is known to match,  existing elements are populated
+         */
+        final boolean populate;
+        final JSONProjection projection;
+        Object[] buffer;
+        /**
+         * position of next element in JSON array,  skipped elements included
+         */
+        int position;
+
+        ObjectBuilder(Class componentType, Object[] existing, JSONProjection projection, boolean populate) {
+            this.componentType = componentType;
+            this.existing = existing;
+            this.populate = populate && existing != null;
+            this.projection = projection;
+            buffer = new Object[capacity(existing)];
+        }
+
+        void add(JSONInput reader) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+            final Object value = populate && position < existing.length
+                    ? JSONUnmarshaller.unmarshallPropertyInto(reader, componentType, existing[position], projection)
+                    : JSONUnmarshaller.unmarshallProperty(reader, componentType, projection);
+            position++;
+            if (value != null) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size << 1);
+                }
+                buffer[size++] = value;
+            }
+        }
+
+        Object toArray() {
+            if (existing != null && size == existing.length) {
+                System.arraycopy(buffer, 0, existing, 0, size);
+                return existing;
+            }
+            final Object array = Array.newInstance(componentType, size);
+            System.arraycopy(buffer, 0, array, 0, size);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+
+/**
+ * contiguous part of object array marshalled on worker thread into its own buffer.
+ * Result is element list without enclosing brackets,  ready to be concatenated
+ */
+final class ArrayChunk implements Callable<String> {
+    private final Object[] array;
+    private final int from;
+    private final int to;
+
+    ArrayChunk(Object[] array, int from, int to) {
+        this.array = array;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String call() throws Exception {
+        final StringWriter buffer = new StringWriter();
+        // wrapped once for the whole chunk,  not for every element
+        final JSONOutput writer = new GsonOutput(new JsonWriter(buffer));
+        // writer insists on proper structure,  so chunk goes as array and brackets are cut off
+        writer.beginArray();
+        for (int i = from; i < to; i++) {
+            JSONMarshaller.marshallValue(writer, array[i]);
+        }
+        writer.endArray();
+        writer.flush();
+        final StringBuffer json = buffer.getBuffer();
+        return json.substring(1, json.length() - 1);
+    }
+}
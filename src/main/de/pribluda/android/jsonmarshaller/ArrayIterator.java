@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * lazily unmarshalls objects of JSON array,  one per next() call.  Array is expected to be already
+ * started,  reader is closed as soon as array is exhausted.
+ * As iterator can not throw checked exceptions,  IO problems come out as {@link UncheckedIOException}
+ * and reflection problems as {@link UndeclaredThrowableException}
+ */
+final class ArrayIterator<T> implements Iterator<T>, Closeable {
+    private final JSONInput reader;
+    private final Class<T> beanClass;
+    private boolean done;
+
+    ArrayIterator(JSONInput reader, Class<T> beanClass) {
+        this.reader = reader;
+        this.beanClass = beanClass;
+    }
+
+    public boolean hasNext() {
+        if (done) {
+            return false;
+        }
+        try {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                return true;
+            }
+            reader.endArray();
+            close();
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return JSONUnmarshaller.unmarshall(reader, beanClass);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * close underlying reader,  also if array is not exhausted yet
+     */
+    public void close() throws IOException {
+        if (!done) {
+            done = true;
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+
+/**
+ * per-class metadata cache,  lookups do not lock.  Where runtime has {@link ClassValue} values are
+ * stored with class itself,  so cache does not pin classes of discarded class loaders.  Elsewhere
+ * (android before API 34) values live in immutable table keyed weakly by class,  which is replaced
+ * by copy on every new class.  Value may be computed more than once under contention,  first one
+ * stored wins
+ *
+ * @param <V> value type,  null values are cached as well
+ */
+final class ClassCache<V> {
+    static final boolean CLASS_VALUE = classValueAvailable();
+
+    private static final Object NULL = new Object();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ClassCache, Table> TABLE =
+            AtomicReferenceFieldUpdater.newUpdater(ClassCache.class, Table.class, "table");
+
+    private final Function<Class<?>, V> loader;
+    /**
+     * backend used when runtime has class values,  null otherwise
+     */
+    private final Values<V> values;
+    private volatile Table table = Table.EMPTY;
+
+    ClassCache(Function<Class<?>, V> loader) {
+        this(loader, CLASS_VALUE);
+    }
+
+    ClassCache(Function<Class<?>, V> loader, boolean classValue) {
+        this.loader = loader;
+        this.values = classValue ? new Values<V>(loader) : null;
+    }
+
+    /**
+     * retrieve value of class,  computing it on first use
+     *
+     * @param type
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    V get(Class<?> type) {
+        if (values != null) {
+            return values.get(type);
+        }
+        Object value = table.get(type);
+        if (value == null) {
+            value = insert(type);
+        }
+        return value == NULL ? null : (V) value;
+    }
+
+    private Object insert(Class<?> type) {
+        final V computed = loader.apply(type);
+        final Object value = computed == null ? NULL : computed;
+        while (true) {
+            final Table current = table;
+            final Object present = current.get(type);
+            if (present != null) {
+                return present;
+            }
+            if (TABLE.compareAndSet(this, current, current.with(type, value))) {
+                return value;
+            }
+        }
+    }
+
+    private static boolean classValueAvailable() {
+        try {
+            Class.forName("java.lang.ClassValue");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * only loaded where runtime has class values
+     */
+    private static final class Values<V> extends ClassValue<V> {
+        private final Function<Class<?>, V> loader;
+
+        Values(Function<Class<?>, V> loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        protected V computeValue(Class<?> type) {
+            return loader.apply(type);
+        }
+    }
+
+    /**
+     * open addressing table,  never modified after construction.  Slots of collected classes
+     * are dropped when table is copied
+     */
+    private static final class Table {
+        static final Table EMPTY = new Table(1);
+
+        private final WeakReference<Class<?>>[] keys;
+        private final Object[] values;
+
+        @SuppressWarnings("unchecked")
+        private Table(int capacity) {
+            keys = new WeakReference[capacity];
+            values = new Object[capacity];
+        }
+
+        Object get(Class<?> type) {
+            final int mask = keys.length - 1;
+            for (int i = System.identityHashCode(type) & mask; ; i = i + 1 & mask) {
+                final WeakReference<Class<?>> key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.get() == type) {
+                    return values[i];
+                }
+            }
+        }
+
+        Table with(Class<?> type, Object value) {
+            int live = 1;
+            for (WeakReference<Class<?>> key : keys) {
+                if (key != null && key.get() != null) {
+                    live++;
+                }
+            }
+            // at most half full,  so probing always ends on free slot
+            int capacity = 2;
+            while (capacity < live * 2) {
+                capacity <<= 1;
+            }
+            final Table copy = new Table(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                final Class<?> present = keys[i] == null ? null : keys[i].get();
+                if (present != null) {
+                    copy.put(present, keys[i], values[i]);
+                }
+            }
+            copy.put(type, new WeakReference<Class<?>>(type), value);
+            return copy;
+        }
+
+        private void put(Class<?> type, WeakReference<Class<?>> key, Object value) {
+            final int mask = keys.length - 1;
+            int i = System.identityHashCode(type) & mask;
+            while (keys[i] != null) {
+                i = i + 1 & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+    }
+}
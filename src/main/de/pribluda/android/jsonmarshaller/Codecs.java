@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+/**
+ * locates compile time generated codecs of bean classes
+ */
+final class Codecs {
+    /**
+     * cache lookup results,  also absent ones
+     */
+    static final ClassCache<JSONCodec> codecCache = new ClassCache<JSONCodec>(Codecs::load);
+
+    private Codecs() {
+    }
+
+    /**
+     * retrieve generated codec for class
+     *
+     * @param clazz bean class
+     * @return codec or null if there is none
+     */
+    static JSONCodec find(Class clazz) {
+        return codecCache.get(clazz);
+    }
+
+    private static JSONCodec load(Class clazz) {
+        if (clazz.isPrimitive() || clazz.isArray()) {
+            return null;
+        }
+        try {
+            final Class codecClass = Class.forName(clazz.getName() + JSONCodec.SUFFIX, true, clazz.getClassLoader());
+            if (JSONCodec.class.isAssignableFrom(codecClass)) {
+                return (JSONCodec) codecClass.getConstructor().newInstance();
+            }
+        } catch (ClassNotFoundException e) {
+            // no generated code,  introspection has to do
+        } catch (Exception e) {
+            // generated code is not usable,  be lenient and go for introspection
+        } catch (LinkageError e) {
+            // same here
+        }
+        return null;
+    }
+}
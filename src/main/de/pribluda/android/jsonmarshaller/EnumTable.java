@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * constants of enum by name and ordinal,  built once per enum.  Lookups neither scan constants
+ * nor throw exceptions for unknown names like {@link Enum#valueOf(Class, String)}
+ */
+final class EnumTable {
+    /**
+     * longest decimal ordinal,  array can not hold more elements anyway
+     */
+    private static final int MAX_DIGITS = 10;
+
+    /**
+     * tables of enums
+     */
+    static final ClassCache<EnumTable> enumCache = new ClassCache<EnumTable>(EnumTable::new);
+
+    private final Enum[] constants;
+    private final HashMap<String, Enum> names;
+    /**
+     * whether constants are written as ordinals
+     */
+    final boolean ordinal;
+
+    private EnumTable(Class type) {
+        constants = (Enum[]) type.getEnumConstants();
+        names = new HashMap<String, Enum>(constants.length * 2);
+        for (Enum constant : constants) {
+            names.put(constant.name(), constant);
+        }
+        ordinal = type.isAnnotationPresent(JSONOrdinal.class);
+    }
+
+    /**
+     * retrieve table of enum
+     *
+     * @param type enum class,  not class of constant with own body
+     * @return
+     */
+    static EnumTable of(Class type) {
+        return enumCache.get(type);
+    }
+
+    /**
+     * write constant as name or ordinal
+     *
+     * @param writer
+     * @param constant
+     */
+    void write(JSONOutput writer, Enum constant) throws IOException {
+        if (ordinal) {
+            writer.value(constant.ordinal());
+        } else {
+            writer.value(constant.name());
+        }
+    }
+
+    /**
+     * find constant by name,  or by ordinal if text is decimal number
+     *
+     * @param text JSON value
+     * @return constant or null if there is none
+     */
+    Enum get(String text) {
+        final Enum constant = names.get(text);
+        if (constant != null || text.length() == 0 || text.length() > MAX_DIGITS) {
+            return constant;
+        }
+        long ordinal = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            ordinal = ordinal * 10 + (c - '0');
+        }
+        return ordinal < constants.length ? constants[(int) ordinal] : null;
+    }
+}
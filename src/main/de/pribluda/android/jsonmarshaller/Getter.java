@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * eligible getter of bean class together with precomputed JSON property name.
+ * instances are immutable and shared between all marshalling runs of the class.
+ * Specialised subclasses are chosen once by declared return type so that writing property
+ * does not go through generic value dispatch each time.
+ */
+class Getter {
+    /**
+     * JSON property name derived from getter name
+     */
+    final String name;
+    /**
+     * property name encoded for output,  so it is escaped only once
+     */
+    final JSONName encodedName;
+    /**
+     * getter method itself
+     */
+    final Method method;
+    /**
+     * fast access to getter, built once.  Primitive getters bring their own access and get
+     * this one only if boxed value is ever asked for
+     */
+    private Accessors.ReadAccess access;
+
+    Getter(String name, Method method) {
+        this(name, method, Accessors.reader(method));
+    }
+
+    Getter(String name, Method method, Accessors.ReadAccess access) {
+        this.name = name;
+        this.encodedName = JSONName.of(name);
+        this.method = method;
+        this.access = access;
+    }
+
+    /**
+     * create getter specialised for declared return type of method
+     *
+     * @param name   JSON property name
+     * @param method getter method
+     * @return
+     */
+    static Getter create(String name, Method method) {
+        final Class type = method.getReturnType();
+        if (type.isPrimitive()) {
+            final Getter primitive = createPrimitive(name, method, type);
+            if (primitive != null) {
+                return primitive;
+            }
+        }
+        if (String.class.equals(type)) {
+            return new StringGetter(name, method);
+        } else if (Character.class.equals(type) || Character.TYPE.equals(type)) {
+            return new CharacterGetter(name, method);
+        } else if (Boolean.class.equals(type) || Boolean.TYPE.equals(type)) {
+            return new BooleanGetter(name, method);
+        } else if (Number.class.isAssignableFrom(Accessors.wrap(type))) {
+            return new NumberGetter(name, method);
+        }
+        return new Getter(name, method);
+    }
+
+    /**
+     * getters writing primitive values without boxing them.  float is not here,  as writer
+     * would need it boxed anyway to keep its representation
+     *
+     * @return getter, or null if no primitive access can be created
+     */
+    private static Getter createPrimitive(String name, Method method, Class type) {
+        if (Integer.TYPE.equals(type) || Long.TYPE.equals(type) || Short.TYPE.equals(type) || Byte.TYPE.equals(type)) {
+            final Accessors.LongReadAccess access = Accessors.lambda(Accessors.LongReadAccess.class, method);
+            return access == null ? null : new LongGetter(name, method, access);
+        } else if (Double.TYPE.equals(type)) {
+            final Accessors.DoubleReadAccess access = Accessors.lambda(Accessors.DoubleReadAccess.class, method);
+            return access == null ? null : new DoubleGetter(name, method, access);
+        } else if (Boolean.TYPE.equals(type)) {
+            final Accessors.BooleanReadAccess access = Accessors.lambda(Accessors.BooleanReadAccess.class, method);
+            return access == null ? null : new PrimitiveBooleanGetter(name, method, access);
+        } else if (Character.TYPE.equals(type)) {
+            final Accessors.CharReadAccess access = Accessors.lambda(Accessors.CharReadAccess.class, method);
+            return access == null ? null : new PrimitiveCharGetter(name, method, access);
+        }
+        return null;
+    }
+
+    /**
+     * retrieve property value from bean
+     *
+     * @param bean
+     * @return
+     * @throws InvocationTargetException if getter has thrown something
+     * @throws IllegalAccessException
+     */
+    Object get(Object bean) throws InvocationTargetException, IllegalAccessException {
+        Accessors.ReadAccess access = this.access;
+        if (access == null) {
+            // racing threads may both build it,  no harm
+            this.access = access = Accessors.reader(method);
+        }
+        try {
+            return access.get(bean);
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * write property value  of bean. name is already written.  Generic version does not know anything
+     * about value and has to look at it
+     *
+     * @param writer
+     * @param bean
+     */
+    void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, NoSuchMethodException {
+        JSONMarshaller.marshallValue(writer, get(bean));
+    }
+
+    static final class StringGetter extends Getter {
+        StringGetter(String name, Method method) {
+            super(name, method);
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException, IllegalAccessException {
+            final Object value = get(bean);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value((String) value);
+            }
+        }
+    }
+
+    static final class CharacterGetter extends Getter {
+        CharacterGetter(String name, Method method) {
+            super(name, method);
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException, IllegalAccessException {
+            final Object value = get(bean);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value(value.toString());
+            }
+        }
+    }
+
+    static final class BooleanGetter extends Getter {
+        BooleanGetter(String name, Method method) {
+            super(name, method);
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException, IllegalAccessException {
+            final Object value = get(bean);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value((Boolean) value);
+            }
+        }
+    }
+
+    static final class NumberGetter extends Getter {
+        NumberGetter(String name, Method method) {
+            super(name, method);
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException, IllegalAccessException {
+            final Object value = get(bean);
+            if (value == null) {
+                writer.nullValue();
+            } else {
+                writer.value((Number) value);
+            }
+        }
+    }
+
+    static final class LongGetter extends Getter {
+        private final Accessors.LongReadAccess primitive;
+
+        LongGetter(String name, Method method, Accessors.LongReadAccess primitive) {
+            super(name, method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException {
+            final long value;
+            try {
+                value = primitive.get(bean);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+            writer.value(value);
+        }
+    }
+
+    static final class DoubleGetter extends Getter {
+        private final Accessors.DoubleReadAccess primitive;
+
+        DoubleGetter(String name, Method method, Accessors.DoubleReadAccess primitive) {
+            super(name, method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException {
+            final double value;
+            try {
+                value = primitive.get(bean);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+            writer.value(value);
+        }
+    }
+
+    static final class PrimitiveBooleanGetter extends Getter {
+        private final Accessors.BooleanReadAccess primitive;
+
+        PrimitiveBooleanGetter(String name, Method method, Accessors.BooleanReadAccess primitive) {
+            super(name, method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException {
+            final boolean value;
+            try {
+                value = primitive.get(bean);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+            writer.value(value);
+        }
+    }
+
+    static final class PrimitiveCharGetter extends Getter {
+        private final Accessors.CharReadAccess primitive;
+
+        PrimitiveCharGetter(String name, Method method, Accessors.CharReadAccess primitive) {
+            super(name, method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void write(JSONOutput writer, Object bean) throws IOException, InvocationTargetException {
+            final char value;
+            try {
+                value = primitive.get(bean);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+            writer.value(JSONMarshaller.characterString(value));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * output delegating to gson writer,  so existing writer based API keeps working
+ */
+final class GsonOutput implements JSONOutput {
+    private final JsonWriter writer;
+
+    GsonOutput(JsonWriter writer) {
+        this.writer = writer;
+    }
+
+    public void beginObject() throws IOException {
+        writer.beginObject();
+    }
+
+    public void endObject() throws IOException {
+        writer.endObject();
+    }
+
+    public void beginArray() throws IOException {
+        writer.beginArray();
+    }
+
+    public void endArray() throws IOException {
+        writer.endArray();
+    }
+
+    public void name(String name) throws IOException {
+        writer.name(name);
+    }
+
+    public void name(JSONName name) throws IOException {
+        // gson escapes by itself
+        writer.name(name.name);
+    }
+
+    public void value(String value) throws IOException {
+        writer.value(value);
+    }
+
+    public void value(boolean value) throws IOException {
+        writer.value(value);
+    }
+
+    public void value(long value) throws IOException {
+        writer.value(value);
+    }
+
+    public void value(double value) throws IOException {
+        writer.value(value);
+    }
+
+    public void value(Number value) throws IOException {
+        writer.value(value);
+    }
+
+    public void nullValue() throws IOException {
+        writer.nullValue();
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
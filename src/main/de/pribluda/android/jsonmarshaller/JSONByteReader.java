@@ -0,0 +1,772 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * pull parser working directly on UTF-8 bytes,  without reader and charset decoder in between.
+ * Whitespace and string contents are scanned a word (8 bytes) at a time,  strings are decoded only
+ * when their value is requested and pure ascii ones are copied as they are.  Nested values are
+ * skipped structurally,  without looking at their tokens.  Tokens and errors are the same as of
+ * gson JsonReader in strict mode.  Remaining bytes of supplied buffer are parsed,  its position
+ * stays untouched.  Not thread safe
+ */
+public final class JSONByteReader implements JSONInput {
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long SPACES = 0x2020202020202020L;
+    private static final long QUOTES = 0x2222222222222222L;
+    private static final long BACKSLASHES = 0x5c5c5c5c5c5c5c5cL;
+    private static final char REPLACEMENT = '\ufffd';
+    /**
+     * longest integer which can be accumulated in long without overflow check
+     */
+    private static final int SAFE_DIGITS = 18;
+
+    private final ByteBuffer input;
+    private final byte[] array;
+    private final int arrayOffset;
+    private final int limit;
+    private int pos;
+
+    private int[] stack = new int[32];
+    private int depth;
+
+    /**
+     * peeked token,  null if next one has to be read
+     */
+    private JsonToken token;
+    /**
+     * raw bytes of peeked scalar value,  without quotes
+     */
+    private int valueStart;
+    private int valueEnd;
+    /**
+     * string value contains escapes or non ascii bytes and has to be decoded
+     */
+    private boolean valueEscaped;
+    /**
+     * number value is plain integer which fits into long
+     */
+    private boolean valueInteger;
+    private boolean valueTrue;
+    private char[] chars = new char[64];
+
+    /**
+     * parse complete array
+     *
+     * @param bytes UTF-8 encoded JSON
+     */
+    public JSONByteReader(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * parse part of array
+     *
+     * @param bytes  UTF-8 encoded JSON
+     * @param offset
+     * @param length
+     */
+    public JSONByteReader(byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * parse remaining bytes of buffer,  which may be direct or memory mapped one
+     *
+     * @param bytes UTF-8 encoded JSON
+     */
+    public JSONByteReader(ByteBuffer bytes) {
+        // words are assembled the same way on every platform
+        input = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+        array = input.hasArray() ? input.array() : null;
+        arrayOffset = input.hasArray() ? input.arrayOffset() : 0;
+        limit = input.limit();
+        push(EMPTY_DOCUMENT);
+        if (Metrics.enabled) {
+            Metrics.listener.bytesRead(limit);
+        }
+    }
+
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+    }
+
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        if (peek() != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + peek());
+        }
+        token = null;
+    }
+
+    public boolean hasNext() throws IOException {
+        final JsonToken next = peek();
+        return next != JsonToken.END_OBJECT && next != JsonToken.END_ARRAY;
+    }
+
+    public JsonToken peek() throws IOException {
+        if (token != null) {
+            return token;
+        }
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                final JsonToken first = nextValue();
+                if (first != JsonToken.BEGIN_ARRAY && first != JsonToken.BEGIN_OBJECT) {
+                    throw syntaxError("Expected JSON document to start with '[' or '{'");
+                }
+                return first;
+            case EMPTY_ARRAY:
+                return nextInArray(true);
+            case NONEMPTY_ARRAY:
+                return nextInArray(false);
+            case EMPTY_OBJECT:
+                return nextInObject(true);
+            case DANGLING_NAME:
+                return objectValue();
+            case NONEMPTY_OBJECT:
+                return nextInObject(false);
+            case NONEMPTY_DOCUMENT:
+                if (skipWhitespace() == limit) {
+                    return token = JsonToken.END_DOCUMENT;
+                }
+                throw syntaxError("Expected EOF");
+            default:
+                throw new IllegalStateException("JsonReader is closed");
+        }
+    }
+
+    public String nextName() throws IOException {
+        if (peek() != JsonToken.NAME) {
+            throw new IllegalStateException("Expected a name but was " + peek());
+        }
+        final String name = text();
+        token = null;
+        return name;
+    }
+
+    /**
+     * name is looked up in table without being decoded,  unless it has escapes or non ASCII characters
+     */
+    @Override
+    public String nextName(JSONStringTable strings) throws IOException {
+        if (peek() != JsonToken.NAME) {
+            throw new IllegalStateException("Expected a name but was " + peek());
+        }
+        final String name = valueEscaped ? strings.intern(decode()) : strings.intern(input, valueStart, valueEnd);
+        token = null;
+        return name;
+    }
+
+    public String nextString() throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.STRING && current != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a string but was " + current);
+        }
+        final String value = text();
+        token = null;
+        return value;
+    }
+
+    /**
+     * value is looked up in table without being decoded,  unless it has escapes or non ASCII characters
+     */
+    @Override
+    public String nextString(JSONStringTable strings) throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.STRING && current != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a string but was " + current);
+        }
+        final String value = valueEscaped && current != JsonToken.NUMBER ? strings.intern(decode()) : strings.intern(input, valueStart, valueEnd);
+        token = null;
+        return value;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        if (peek() != JsonToken.BOOLEAN) {
+            throw new IllegalStateException("Expected a boolean but was " + token);
+        }
+        token = null;
+        return valueTrue;
+    }
+
+    public void nextNull() throws IOException {
+        if (peek() != JsonToken.NULL) {
+            throw new IllegalStateException("Expected null but was " + token);
+        }
+        token = null;
+    }
+
+    public double nextDouble() throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.STRING && current != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a double but was " + current);
+        }
+        final double value = current == JsonToken.NUMBER && valueInteger ? integer() : Double.parseDouble(text());
+        token = null;
+        return value;
+    }
+
+    public long nextLong() throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.STRING && current != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a long but was " + current);
+        }
+        final long value = current == JsonToken.NUMBER && valueInteger ? integer() : parseLong(text());
+        token = null;
+        return value;
+    }
+
+    public int nextInt() throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.STRING && current != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected an int but was " + current);
+        }
+        final long value = current == JsonToken.NUMBER && valueInteger ? integer() : parseLong(text());
+        if ((int) value != value) {
+            throw new NumberFormatException(text());
+        }
+        token = null;
+        return (int) value;
+    }
+
+    /**
+     * skip next value.  Nested objects and arrays are skipped by bracket counting,  without
+     * decoding or validating their contents
+     */
+    public void skipValue() throws IOException {
+        final JsonToken current = peek();
+        token = null;
+        if (current == JsonToken.BEGIN_OBJECT || current == JsonToken.BEGIN_ARRAY) {
+            int p = pos;
+            int level = 1;
+            while (level > 0) {
+                if (p >= limit) {
+                    throw new EOFException("End of input");
+                }
+                switch (input.get(p++)) {
+                    case '"':
+                        p = stringEnd(p) + 1;
+                        break;
+                    case '{':
+                    case '[':
+                        level++;
+                        break;
+                    case '}':
+                    case ']':
+                        level--;
+                        break;
+                    default:
+                }
+            }
+            pos = p;
+            depth--;
+        }
+    }
+
+    /**
+     * skip next object or array,  returning bytes it occupies.  Returned buffer shares
+     * content with input,  so it is valid as long as input is not modified
+     *
+     * @return bytes of value including its brackets
+     */
+    ByteBuffer captureValue() throws IOException {
+        final JsonToken current = peek();
+        if (current != JsonToken.BEGIN_OBJECT && current != JsonToken.BEGIN_ARRAY) {
+            throw new IllegalStateException("Expected object or array but was " + current);
+        }
+        // opening bracket is already consumed
+        final int start = pos - 1;
+        skipValue();
+        final ByteBuffer value = input.duplicate();
+        value.limit(pos);
+        value.position(start);
+        return value;
+    }
+
+    /**
+     * count elements of array about to be read,  without consuming it
+     *
+     * @return number of elements
+     */
+    int countElements() throws IOException {
+        if (peek() != JsonToken.BEGIN_ARRAY) {
+            throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek());
+        }
+        final int start = pos;
+        final int level = depth;
+        final int scope = stack[depth - 1];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            skipValue();
+            count++;
+        }
+        // rewind to peeked array
+        pos = start;
+        depth = level;
+        stack[depth - 1] = scope;
+        token = JsonToken.BEGIN_ARRAY;
+        return count;
+    }
+
+    public void close() {
+        token = null;
+        depth = 1;
+        stack[0] = CLOSED;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " at byte " + pos;
+    }
+
+    private JsonToken nextInArray(boolean first) throws IOException {
+        if (first) {
+            stack[depth - 1] = NONEMPTY_ARRAY;
+            if (nextNonWhitespace() == ']') {
+                depth--;
+                return token = JsonToken.END_ARRAY;
+            }
+            pos--;
+        } else {
+            switch (nextNonWhitespace()) {
+                case ']':
+                    depth--;
+                    return token = JsonToken.END_ARRAY;
+                case ',':
+                    break;
+                default:
+                    throw syntaxError("Unterminated array");
+            }
+        }
+        return nextValue();
+    }
+
+    private JsonToken nextInObject(boolean first) throws IOException {
+        if (first) {
+            if (nextNonWhitespace() == '}') {
+                depth--;
+                return token = JsonToken.END_OBJECT;
+            }
+            pos--;
+        } else {
+            switch (nextNonWhitespace()) {
+                case '}':
+                    depth--;
+                    return token = JsonToken.END_OBJECT;
+                case ',':
+                    break;
+                default:
+                    throw syntaxError("Unterminated object");
+            }
+        }
+        if (nextNonWhitespace() != '"') {
+            throw syntaxError("Expected name");
+        }
+        // name is decoded only when it is asked for
+        scanString();
+        stack[depth - 1] = DANGLING_NAME;
+        return token = JsonToken.NAME;
+    }
+
+    private JsonToken objectValue() throws IOException {
+        if (nextNonWhitespace() != ':') {
+            throw syntaxError("Expected ':'");
+        }
+        stack[depth - 1] = NONEMPTY_OBJECT;
+        return nextValue();
+    }
+
+    private JsonToken nextValue() throws IOException {
+        final int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                push(EMPTY_OBJECT);
+                return token = JsonToken.BEGIN_OBJECT;
+            case '[':
+                push(EMPTY_ARRAY);
+                return token = JsonToken.BEGIN_ARRAY;
+            case '"':
+                scanString();
+                return token = JsonToken.STRING;
+            case 't':
+                literal("rue");
+                valueTrue = true;
+                return token = JsonToken.BOOLEAN;
+            case 'f':
+                literal("alse");
+                valueTrue = false;
+                return token = JsonToken.BOOLEAN;
+            case 'n':
+                literal("ull");
+                return token = JsonToken.NULL;
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    pos--;
+                    scanNumber();
+                    return token = JsonToken.NUMBER;
+                }
+                throw syntaxError("Expected value");
+        }
+    }
+
+    /**
+     * match rest of literal,  which shall not be followed by further literal characters
+     */
+    private void literal(String rest) throws IOException {
+        final int length = rest.length();
+        if (pos + length > limit) {
+            throw syntaxError("Unexpected end of literal");
+        }
+        for (int i = 0; i < length; i++) {
+            if (input.get(pos + i) != rest.charAt(i)) {
+                throw syntaxError("Unexpected literal");
+            }
+        }
+        pos += length;
+        if (pos < limit && isLiteral(input.get(pos))) {
+            throw syntaxError("Unexpected literal");
+        }
+    }
+
+    private static boolean isLiteral(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '.' || c == '-' || c == '+';
+    }
+
+    /**
+     * scan number according to JSON grammar,  remembering whether it is plain integer
+     */
+    private void scanNumber() throws IOException {
+        int p = pos;
+        if (p < limit && input.get(p) == '-') {
+            p++;
+        }
+        final int digitsStart = p;
+        if (p < limit && input.get(p) == '0') {
+            p++;
+        } else {
+            p = digits(p);
+        }
+        final int integerDigits = p - digitsStart;
+        boolean integer = true;
+        if (p < limit && input.get(p) == '.') {
+            integer = false;
+            p = digits(p + 1);
+        }
+        if (p < limit && (input.get(p) == 'e' || input.get(p) == 'E')) {
+            integer = false;
+            p++;
+            if (p < limit && (input.get(p) == '+' || input.get(p) == '-')) {
+                p++;
+            }
+            p = digits(p);
+        }
+        if (p < limit && isLiteral(input.get(p))) {
+            throw syntaxError("Malformed number");
+        }
+        valueStart = pos;
+        valueEnd = p;
+        valueInteger = integer && integerDigits <= SAFE_DIGITS;
+        pos = p;
+    }
+
+    /**
+     * @return position after at least one digit
+     */
+    private int digits(int p) throws IOException {
+        final int start = p;
+        while (p < limit && input.get(p) >= '0' && input.get(p) <= '9') {
+            p++;
+        }
+        if (p == start) {
+            pos = p;
+            throw syntaxError("Malformed number");
+        }
+        return p;
+    }
+
+    /**
+     * accumulate plain integer value straight from bytes
+     */
+    private long integer() {
+        int p = valueStart;
+        final boolean negative = input.get(p) == '-';
+        if (negative) {
+            p++;
+        }
+        long value = 0;
+        while (p < valueEnd) {
+            value = value * 10 + input.get(p++) - '0';
+        }
+        return negative ? -value : value;
+    }
+
+    private static long parseLong(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            final double asDouble = Double.parseDouble(text);
+            final long value = (long) asDouble;
+            if (value != asDouble) {
+                throw new NumberFormatException(text);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * remember position of string contents,  opening quote is consumed already
+     */
+    private void scanString() throws IOException {
+        valueStart = pos;
+        valueEscaped = false;
+        valueEnd = stringEnd(pos);
+        pos = valueEnd + 1;
+    }
+
+    /**
+     * find closing quote of string,  noting whether contents need decoding
+     *
+     * @param p position after opening quote
+     * @return position of closing quote
+     */
+    private int stringEnd(int p) throws IOException {
+        final ByteBuffer input = this.input;
+        final int limit = this.limit;
+        for (; ; ) {
+            // plain ascii without quotes and backslashes goes by words
+            while (p + 8 <= limit) {
+                final long word = input.getLong(p);
+                if ((zeroByte(word ^ QUOTES) | zeroByte(word ^ BACKSLASHES) | word & HIGHS) != 0) {
+                    break;
+                }
+                p += 8;
+            }
+            if (p >= limit) {
+                pos = p;
+                throw syntaxError("Unterminated string");
+            }
+            final byte b = input.get(p);
+            if (b == '"') {
+                return p;
+            } else if (b == '\\') {
+                valueEscaped = true;
+                p += 2;
+            } else {
+                if (b < 0) {
+                    valueEscaped = true;
+                }
+                p++;
+            }
+        }
+    }
+
+    /**
+     * @return non zero if some byte of word is zero
+     */
+    private static long zeroByte(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+
+    /**
+     * text of current string or number value
+     */
+    private String text() throws IOException {
+        final int length = valueEnd - valueStart;
+        if (!valueEscaped || token == JsonToken.NUMBER) {
+            if (array != null) {
+                return new String(array, arrayOffset + valueStart, length, StandardCharsets.ISO_8859_1);
+            }
+            final char[] chars = chars(length);
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) input.get(valueStart + i);
+            }
+            return new String(chars, 0, length);
+        }
+        return decode();
+    }
+
+    /**
+     * decode escapes and UTF-8 sequences of current value.  Decoded value is never longer
+     * than its bytes
+     */
+    private String decode() throws IOException {
+        final char[] chars = chars(valueEnd - valueStart);
+        final int end = valueEnd;
+        int count = 0;
+        int p = valueStart;
+        while (p < end) {
+            final int b = input.get(p++);
+            if (b == '\\') {
+                if (p >= end) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                final int escaped = input.get(p++);
+                switch (escaped) {
+                    case 'u':
+                        if (p + 4 > end) {
+                            throw syntaxError("Unterminated escape sequence");
+                        }
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            final int digit = Character.digit(input.get(p++), 16);
+                            if (digit < 0) {
+                                throw syntaxError("Malformed unicode escape");
+                            }
+                            code = code << 4 | digit;
+                        }
+                        chars[count++] = (char) code;
+                        break;
+                    case 't':
+                        chars[count++] = '\t';
+                        break;
+                    case 'b':
+                        chars[count++] = '\b';
+                        break;
+                    case 'n':
+                        chars[count++] = '\n';
+                        break;
+                    case 'r':
+                        chars[count++] = '\r';
+                        break;
+                    case 'f':
+                        chars[count++] = '\f';
+                        break;
+                    default:
+                        // quote,  backslash,  slash and whatever else stand for themselves
+                        chars[count++] = (char) (escaped & 0xff);
+                }
+            } else if (b >= 0) {
+                chars[count++] = (char) b;
+            } else {
+                final int lead = b & 0xff;
+                final int continuations;
+                int code;
+                if ((lead & 0xe0) == 0xc0) {
+                    continuations = 1;
+                    code = lead & 0x1f;
+                } else if ((lead & 0xf0) == 0xe0) {
+                    continuations = 2;
+                    code = lead & 0x0f;
+                } else if ((lead & 0xf8) == 0xf0) {
+                    continuations = 3;
+                    code = lead & 0x07;
+                } else {
+                    chars[count++] = REPLACEMENT;
+                    continue;
+                }
+                int i = 0;
+                while (i < continuations && p < end && (input.get(p) & 0xc0) == 0x80) {
+                    code = code << 6 | input.get(p++) & 0x3f;
+                    i++;
+                }
+                if (i < continuations || continuations == 1 && code < 0x80 || continuations == 2 && (code < 0x800 || code >= 0xd800 && code < 0xe000)
+                        || continuations == 3 && (code < 0x10000 || code > 0x10ffff)) {
+                    // truncated,  overlong,  surrogate or out of range
+                    chars[count++] = REPLACEMENT;
+                } else if (code < 0x10000) {
+                    chars[count++] = (char) code;
+                } else {
+                    chars[count++] = Character.highSurrogate(code);
+                    chars[count++] = Character.lowSurrogate(code);
+                }
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private char[] chars(int length) {
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        return chars;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * @return position of first non whitespace byte,  or limit
+     */
+    private int skipWhitespace() {
+        final ByteBuffer input = this.input;
+        int p = pos;
+        while (p < limit) {
+            final byte b = input.get(p);
+            if (b == ' ') {
+                // indentation comes in runs of spaces
+                p += p + 8 <= limit && input.getLong(p) == SPACES ? 8 : 1;
+            } else if (b == '\n' || b == '\r' || b == '\t') {
+                p++;
+            } else {
+                break;
+            }
+        }
+        pos = p;
+        return p;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        final int p = skipWhitespace();
+        if (p == limit) {
+            throw new EOFException("End of input");
+        }
+        pos = p + 1;
+        return input.get(p);
+    }
+
+    private IOException syntaxError(String message) throws IOException {
+        throw new MalformedJsonException(message + " at byte " + pos);
+    }
+}
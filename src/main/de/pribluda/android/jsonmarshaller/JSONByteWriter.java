@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * writes JSON as UTF-8 straight into byte buffer,  without character writer and charset encoder
+ * in between.  Strings are escaped by lookup table and plain ascii is copied as is.  Output goes
+ * to output stream or NIO buffer whenever buffer is full and on flush.  Instance can be reset to
+ * new destination and reused,  so its buffer is allocated only once.  Output is compact,  structure
+ * is checked the same way as by gson JsonWriter.  Not thread safe
+ */
+public final class JSONByteWriter implements JSONOutput, Closeable, Flushable {
+    /**
+     * default size of internal buffer
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    /**
+     * pre-encoded name is written together with colon
+     */
+    private static final int DANGLING_TOKEN = 8;
+
+    /**
+     * escape sequences of ascii characters,  null if character goes as it is
+     */
+    private static final byte[][] ESCAPES = new byte[128][];
+    private static final byte[][] NO_ESCAPES = new byte[128][];
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] MIN_LONG = ascii(Long.toString(Long.MIN_VALUE));
+    /**
+     * longest byte sequence produced out of single character
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = ascii(String.format("\\u%04x", c));
+        }
+        ESCAPES['"'] = ascii("\\\"");
+        ESCAPES['\\'] = ascii("\\\\");
+        ESCAPES['\t'] = ascii("\\t");
+        ESCAPES['\b'] = ascii("\\b");
+        ESCAPES['\n'] = ascii("\\n");
+        ESCAPES['\r'] = ascii("\\r");
+        ESCAPES['\f'] = ascii("\\f");
+    }
+
+    private final byte[] buffer;
+    private int position;
+    private OutputStream out;
+    private ByteBuffer target;
+    private int[] stack = new int[32];
+    private int depth;
+
+    /**
+     * writer draining into output stream
+     *
+     * @param out
+     */
+    public JSONByteWriter(OutputStream out) {
+        this(BUFFER_SIZE);
+        reset(out);
+    }
+
+    /**
+     * writer draining into NIO buffer.  Buffer overflow comes out as {@link java.nio.BufferOverflowException}
+     *
+     * @param target
+     */
+    public JSONByteWriter(ByteBuffer target) {
+        this(BUFFER_SIZE);
+        reset(target);
+    }
+
+    /**
+     * writer without destination,  it has to be reset to one before use
+     *
+     * @param bufferSize size of internal buffer
+     */
+    public JSONByteWriter(int bufferSize) {
+        buffer = new byte[Math.max(bufferSize, 64)];
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * start new document written to output stream,  keeping buffer
+     *
+     * @param out
+     */
+    public void reset(OutputStream out) {
+        this.out = out;
+        this.target = null;
+        restart();
+    }
+
+    /**
+     * start new document written to NIO buffer,  keeping buffer
+     *
+     * @param target
+     */
+    public void reset(ByteBuffer target) {
+        this.out = null;
+        this.target = target;
+        restart();
+    }
+
+    private void restart() {
+        position = 0;
+        depth = 0;
+        push(EMPTY_DOCUMENT);
+    }
+
+    public void beginObject() throws IOException {
+        open(EMPTY_OBJECT, '{');
+    }
+
+    public void endObject() throws IOException {
+        close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    public void beginArray() throws IOException {
+        open(EMPTY_ARRAY, '[');
+    }
+
+    public void endArray() throws IOException {
+        close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    public void name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        beforeName(DANGLING_NAME);
+        string(name);
+    }
+
+    /**
+     * copy pre-encoded name with its colon
+     *
+     * @param name
+     */
+    public void name(JSONName name) throws IOException {
+        beforeName(DANGLING_TOKEN);
+        write(name.token);
+    }
+
+    private void beforeName(int dangling) throws IOException {
+        final int context = stack[depth - 1];
+        if (context == NONEMPTY_OBJECT) {
+            write(',');
+        } else if (context != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem: " + context);
+        }
+        stack[depth - 1] = dangling;
+    }
+
+    public void value(String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        beforeValue(false);
+        string(value);
+    }
+
+    public void value(boolean value) throws IOException {
+        beforeValue(false);
+        write(value ? TRUE : FALSE);
+    }
+
+    public void value(long value) throws IOException {
+        beforeValue(false);
+        if (value == Long.MIN_VALUE) {
+            write(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        final byte[] buffer = this.buffer;
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        final int end = position + digits;
+        int p = end;
+        do {
+            buffer[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        position = end;
+    }
+
+    public void value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue(false);
+        raw(Double.toString(value));
+    }
+
+    public void value(Number value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        final String string = value.toString();
+        if (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN")) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue(false);
+        raw(string);
+    }
+
+    public void nullValue() throws IOException {
+        beforeValue(false);
+        write(NULL);
+    }
+
+    /**
+     * drain buffer to destination,  output stream is flushed as well
+     */
+    public void flush() throws IOException {
+        drain();
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * flush and close output stream.  NIO buffer stays as it is
+     *
+     * @throws IOException if document is incomplete
+     */
+    public void close() throws IOException {
+        flush();
+        if (out != null) {
+            out.close();
+        }
+        if (depth > 1 || depth == 1 && stack[0] != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    private void open(int empty, char bracket) throws IOException {
+        beforeValue(true);
+        push(empty);
+        write(bracket);
+    }
+
+    private void close(int empty, int nonempty, char bracket) throws IOException {
+        final int context = stack[depth - 1];
+        if (context != nonempty && context != empty) {
+            throw new IllegalStateException("Nesting problem: " + context);
+        }
+        depth--;
+        write(bracket);
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * write separator required before next value and update scope
+     *
+     * @param root whether value can be top level one
+     */
+    private void beforeValue(boolean root) throws IOException {
+        switch (stack[depth - 1]) {
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("JSON must have only one top-level value.");
+            case EMPTY_DOCUMENT:
+                if (!root) {
+                    throw new IllegalStateException("JSON must start with an array or an object.");
+                }
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                break;
+            case DANGLING_NAME:
+                write(':');
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case DANGLING_TOKEN:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem");
+        }
+    }
+
+    /**
+     * write quoted and escaped string
+     */
+    private void string(String value) throws IOException {
+        write('"');
+        encode(value, true);
+        write('"');
+    }
+
+    /**
+     * write characters without quotes and escaping,  numbers are like that
+     */
+    private void raw(String value) throws IOException {
+        encode(value, false);
+    }
+
+    private void encode(String value, boolean escape) throws IOException {
+        final byte[] buffer = this.buffer;
+        final byte[][] escapes = escape ? ESCAPES : NO_ESCAPES;
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            // run of plain ascii goes without any checks but table lookup
+            int p = position;
+            final int limit = Math.min(length, i + buffer.length - p);
+            char c = 0;
+            while (i < limit) {
+                c = value.charAt(i);
+                if (c >= 0x80 || escapes[c] != null) {
+                    break;
+                }
+                buffer[p++] = (byte) c;
+                i++;
+            }
+            position = p;
+            if (i == length) {
+                break;
+            }
+            if (i == limit) {
+                drain();
+                continue;
+            }
+            ensure(MAX_CHAR_BYTES);
+            i++;
+            if (c < 0x80) {
+                final byte[] sequence = escapes[c];
+                System.arraycopy(sequence, 0, buffer, position, sequence.length);
+                position += sequence.length;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(value.charAt(i))) {
+                final int code = Character.toCodePoint(c, value.charAt(i++));
+                buffer[position++] = (byte) (0xf0 | code >> 18);
+                buffer[position++] = (byte) (0x80 | code >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | code >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | code & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate is replaced like by standard encoder
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length) {
+            // does not fit at all,  goes straight to destination
+            drain();
+            emit(bytes, bytes.length);
+            return;
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * make room for given amount of bytes
+     */
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        emit(buffer, position);
+        position = 0;
+    }
+
+    private void emit(byte[] bytes, int length) throws IOException {
+        if (out != null) {
+            out.write(bytes, 0, length);
+        } else if (target != null) {
+            target.put(bytes, 0, length);
+        } else {
+            throw new IllegalStateException("writer has no destination");
+        }
+        if (Metrics.enabled) {
+            Metrics.listener.bytesWritten(length);
+        }
+    }
+
+    /**
+     * encode property name once,  quoted and escaped with colon appended
+     *
+     * @param name
+     * @return
+     */
+    static byte[] nameToken(String name) {
+        final JSONByteWriter writer = new JSONByteWriter(name.length() * 6 + 3);
+        try {
+            writer.string(name);
+            writer.write(':');
+        } catch (IOException e) {
+            // buffer is big enough for anything,  nothing is written out
+            throw new IllegalStateException(e);
+        }
+        return Arrays.copyOf(writer.buffer, writer.position);
+    }
+
+    private static byte[] ascii(String string) {
+        final byte[] bytes = new byte[string.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) string.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * reflection free marshalling of single bean class.  Implementations are generated at compile time
+ * for beans annotated with {@link JSONBean} and are picked up by {@link JSONMarshaller} and
+ * {@link JSONUnmarshaller} instead of introspection.  Implementation for bean class <code>a.b.Bean</code>
+ * must be named <code>a.b.Bean$$JSONCodec</code>  and have public default constructor
+ * (keep them when shrinking application)
+ */
+public interface JSONCodec<T> {
+    /**
+     * suffix appended to binary name of bean class to obtain codec class name
+     */
+    String SUFFIX = "$$JSONCodec";
+
+    /**
+     * create fresh bean instance
+     *
+     * @return
+     * @throws NoSuchMethodException if bean has no default constructor
+     */
+    T newInstance() throws NoSuchMethodException, InstantiationException;
+
+    /**
+     * write names and values of all bean properties.  Object itself is already started and
+     * will be ended by caller
+     *
+     * @param writer
+     * @param bean
+     * @return number of properties written
+     */
+    int marshallProperties(JSONOutput writer, T bean) throws IOException, InvocationTargetException, IllegalAccessException, NoSuchMethodException;
+
+    /**
+     * read value of single property into bean. Name is already consumed from reader
+     *
+     * @param reader
+     * @param name   JSON property name
+     * @param bean
+     * @return false if there is no such property,  value is not consumed then
+     */
+    boolean unmarshallProperty(JSONInput reader, String name, T bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * source of JSON tokens for unmarshalling.  Mirrors streaming API of gson JsonReader,  so unmarshaller
+ * and generated codecs can read either through gson or straight out of bytes with {@link JSONByteReader}
+ */
+public interface JSONInput extends Closeable {
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    void beginObject() throws IOException;
+
+    void endObject() throws IOException;
+
+    /**
+     * @return whether current array or object has more elements
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * @return type of next token without consuming it
+     */
+    JsonToken peek() throws IOException;
+
+    String nextName() throws IOException;
+
+    /**
+     * @return string or number value as text
+     */
+    String nextString() throws IOException;
+
+    /**
+     * @param strings table of canonical strings
+     * @return name as retained by table
+     */
+    default String nextName(JSONStringTable strings) throws IOException {
+        return strings.intern(nextName());
+    }
+
+    /**
+     * @param strings table of canonical strings
+     * @return string or number value as retained by table
+     */
+    default String nextString(JSONStringTable strings) throws IOException {
+        return strings.intern(nextString());
+    }
+
+    boolean nextBoolean() throws IOException;
+
+    void nextNull() throws IOException;
+
+    /**
+     * @return string or number value as double
+     * @throws NumberFormatException if value is not a number
+     */
+    double nextDouble() throws IOException;
+
+    /**
+     * @return string or number value as long
+     * @throws NumberFormatException if value is not a number or does not fit
+     */
+    long nextLong() throws IOException;
+
+    /**
+     * @return string or number value as int
+     * @throws NumberFormatException if value is not a number or does not fit
+     */
+    int nextInt() throws IOException;
+
+    /**
+     * skip next value,  with everything nested in it
+     */
+    void skipValue() throws IOException;
+}
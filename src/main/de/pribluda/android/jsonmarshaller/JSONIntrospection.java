@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * builds introspection metadata ahead of time,  so first requests do not pay for reflection.
+ * Metadata of bean graph can be saved into compact snapshot and loaded on next start,  which
+ * resolves recorded methods one by one instead of listing and introspecting them again.  Snapshot
+ * is tagged with build id supplied by caller (like application version),  snapshot of other build
+ * is ignored as a whole and classes are introspected as usual
+ */
+public final class JSONIntrospection {
+    private static final int MAGIC = 0x4a534e50;
+    private static final int VERSION = 3;
+
+    /**
+     * descriptors of snapshot being loaded,  consulted when caches compute values
+     */
+    static final ConcurrentHashMap<Class, Getter[]> restoredGetters = new ConcurrentHashMap<Class, Getter[]>();
+    static final ConcurrentHashMap<Class, Setter[]> restoredSetters = new ConcurrentHashMap<Class, Setter[]>();
+
+    private static final HashMap<String, Class> primitives = new HashMap<String, Class>();
+
+    static {
+        for (Class type : new Class[]{Integer.TYPE, Long.TYPE, Double.TYPE, Boolean.TYPE, Character.TYPE, Short.TYPE, Float.TYPE, Byte.TYPE}) {
+            primitives.put(type.getName(), type);
+        }
+    }
+
+    private JSONIntrospection() {
+    }
+
+    /**
+     * build marshalling and unmarshalling metadata of beans and everything reachable through
+     * their properties
+     *
+     * @param beans root bean classes
+     */
+    public static void prepare(Class<?>... beans) {
+        walk(beans);
+    }
+
+    /**
+     * build metadata in background
+     *
+     * @param executor executor to run on
+     * @param beans    root bean classes
+     * @return future completed when metadata is built
+     */
+    public static Future<?> prepare(Executor executor, final Class<?>... beans) {
+        final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            public void run() {
+                walk(beans);
+            }
+        }, null);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * prepare bean graph and save its metadata
+     *
+     * @param out   destination,  not closed
+     * @param build id of build beans belong to,  has to change whenever beans do
+     * @param beans root bean classes
+     * @return number of classes saved
+     */
+    public static int save(OutputStream out, String build, Class<?>... beans) throws IOException {
+        final List<Class> classes = walk(beans);
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeUTF(build);
+        data.writeInt(classes.size());
+        for (Class type : classes) {
+            data.writeUTF(type.getName());
+            final Getter[] getters = JSONMarshaller.methodCache.get(type);
+            data.writeShort(getters.length);
+            for (Getter getter : getters) {
+                data.writeUTF(getter.method.getName());
+            }
+            final Setter[] setters = JSONUnmarshaller.methodCache.get(type).setters();
+            data.writeShort(setters.length);
+            for (Setter setter : setters) {
+                data.writeUTF(setter.method.getName());
+                data.writeUTF(setter.method.getParameterTypes()[0].getName());
+            }
+        }
+        data.flush();
+        return classes.size();
+    }
+
+    /**
+     * load snapshot with class loader of this library
+     *
+     * @param in    snapshot,  not closed
+     * @param build id of current build
+     * @return number of classes restored
+     */
+    public static int load(InputStream in, String build) throws IOException {
+        return load(in, build, JSONIntrospection.class.getClassLoader());
+    }
+
+    /**
+     * load snapshot and fill caches with it.  Snapshot of other build is not read any further.
+     * Classes which can not be found or do not have recorded methods any more are left
+     * to introspection,  as well as classes already in use
+     *
+     * @param in     snapshot,  not closed
+     * @param build  id of current build
+     * @param loader loader of bean classes
+     * @return number of classes restored
+     */
+    public static int load(InputStream in, String build, ClassLoader loader) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not an introspection snapshot");
+        }
+        final int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        if (!data.readUTF().equals(build)) {
+            // beans may have changed since,  recorded methods can not be trusted
+            return 0;
+        }
+        int restored = 0;
+        for (int classes = data.readInt(); classes > 0; classes--) {
+            final String className = data.readUTF();
+            final String[] getterNames = new String[data.readUnsignedShort()];
+            for (int i = 0; i < getterNames.length; i++) {
+                getterNames[i] = data.readUTF();
+            }
+            final String[] setterNames = new String[data.readUnsignedShort()];
+            final String[] parameterNames = new String[setterNames.length];
+            for (int i = 0; i < setterNames.length; i++) {
+                setterNames[i] = data.readUTF();
+                parameterNames[i] = data.readUTF();
+            }
+
+            final Class type;
+            final Getter[] getters = new Getter[getterNames.length];
+            final Setter[] setters = new Setter[setterNames.length];
+            try {
+                type = Class.forName(className, false, loader);
+                for (int i = 0; i < getters.length; i++) {
+                    getters[i] = Getter.create(JSONMarshaller.propertize(getterNames[i]), type.getMethod(getterNames[i]));
+                }
+                for (int i = 0; i < setters.length; i++) {
+                    setters[i] = Setter.create(type.getMethod(setterNames[i], resolve(parameterNames[i], loader)));
+                }
+            } catch (ClassNotFoundException e) {
+                // gone since snapshot was taken
+                continue;
+            } catch (NoSuchMethodException e) {
+                // changed since snapshot was taken,  introspection will do
+                continue;
+            }
+
+            restoredGetters.put(type, getters);
+            restoredSetters.put(type, setters);
+            try {
+                JSONMarshaller.methodCache.get(type);
+                JSONUnmarshaller.methodCache.get(type);
+                Codecs.find(type);
+            } finally {
+                restoredGetters.remove(type);
+                restoredSetters.remove(type);
+            }
+            restored++;
+        }
+        return restored;
+    }
+
+    /**
+     * visit bean graph breadth first,  building metadata on the way
+     *
+     * @return bean classes visited
+     */
+    private static List<Class> walk(Class<?>[] roots) {
+        final List<Class> beans = new ArrayList<Class>();
+        final HashSet<Class> visited = new HashSet<Class>();
+        final ArrayDeque<Class> pending = new ArrayDeque<Class>(Arrays.asList(roots));
+        while (!pending.isEmpty()) {
+            Class type = pending.poll();
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (!visited.add(type) || type.isPrimitive()) {
+                continue;
+            }
+            if (type.isEnum()) {
+                EnumTable.of(type);
+            } else if (Setter.isScalar(type) || type.getName().startsWith("java.")) {
+                // values converted out of strings
+                JSONUnmarshaller.constructorCache.get(type);
+            } else if (type.isInterface()) {
+                // lazily unmarshalled
+                for (Method getter : LazyObject.getterCache.get(type).values()) {
+                    pending.add(getter.getReturnType());
+                }
+            } else {
+                Codecs.find(type);
+                for (Getter getter : JSONMarshaller.methodCache.get(type)) {
+                    pending.add(getter.method.getReturnType());
+                }
+                for (Setter setter : JSONUnmarshaller.methodCache.get(type).setters()) {
+                    pending.add(setter.method.getParameterTypes()[0]);
+                }
+                beans.add(type);
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * class of name as returned by {@link Class#getName()}
+     */
+    private static Class resolve(String name, ClassLoader loader) throws ClassNotFoundException {
+        final Class primitive = primitives.get(name);
+        return primitive != null ? primitive : Class.forName(name, false, loader);
+    }
+}
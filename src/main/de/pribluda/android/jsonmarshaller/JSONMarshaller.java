@@ -21,11 +21,20 @@ package de.pribluda.android.jsonmarshaller;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
-import java.lang.reflect.Array;
+import java.io.InterruptedIOException;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
 
 /**
  * marshall beans to JSON into writer
@@ -35,11 +44,26 @@ public class JSONMarshaller {
     private static final int BEGIN_INDEX = GETTER_PREFIX.length();
     public static final String IS_PREFIX = "is";
     public static final int IS_LENGTH = 2;
+    /**
+     * elements written between flushes when marshalling element sources
+     */
+    public static final int FLUSH_INTERVAL = 1000;
+    /**
+     * minimal length of object array worth marshalling in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 10000;
 
     /**
-     * cache methods in classes because on android it seems to be disabled
+     * cache eligible getters of classes, as introspection is expensive (especially on android)
      */
-    static final HashMap<Class, Method[]> methodCache = new HashMap();
+    static final ClassCache<Getter[]> methodCache = new ClassCache<Getter[]>(type -> {
+        if (Metrics.enabled) {
+            Metrics.listener.cacheMiss(JSONMetrics.Cache.GETTERS, type);
+        }
+        // snapshot being loaded spares introspection
+        final Getter[] restored = JSONIntrospection.restoredGetters.get(type);
+        return restored != null ? restored : introspect(type);
+    });
 
     /**
      * marshall supplied object (tree?) to JSON
@@ -47,7 +71,111 @@ public class JSONMarshaller {
      * @param object
      */
     public static void marshall(JsonWriter writer, Object object) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
-        marshallRecursive(writer, object);
+        marshallRecursive(new GsonOutput(writer), object);
+    }
+
+    /**
+     * marshall supplied object to JSON output,  for example {@link JSONByteWriter}
+     *
+     * @param output
+     * @param object
+     */
+    public static void marshall(JSONOutput output, Object object) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshallRecursive(output, object);
+    }
+
+    /**
+     * marshall elements to JSON array one by one as they come,  so they do not have to be
+     * in memory all at once. Writer is flushed every {@link #FLUSH_INTERVAL} elements and at the end
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JsonWriter writer, Iterator<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements, FLUSH_INTERVAL);
+    }
+
+    /**
+     * marshall elements to JSON array one by one as they come
+     *
+     * @param writer
+     * @param elements
+     * @param flushInterval elements written between flushes
+     */
+    public static void marshall(JsonWriter writer, Iterator<?> elements, int flushInterval) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(new GsonOutput(writer), elements, flushInterval);
+    }
+
+    /**
+     * marshall elements to JSON array one by one as they come
+     *
+     * @param writer
+     * @param elements
+     * @param flushInterval elements written between flushes
+     */
+    public static void marshall(JSONOutput writer, Iterator<?> elements, int flushInterval) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        writer.beginArray();
+        int count = 0;
+        while (elements.hasNext()) {
+            marshallValue(writer, elements.next());
+            if (++count == flushInterval) {
+                writer.flush();
+                count = 0;
+            }
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    /**
+     * marshall iterable to JSON array element by element
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JsonWriter writer, Iterable<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements.iterator(), FLUSH_INTERVAL);
+    }
+
+    /**
+     * marshall stream to JSON array element by element, stream is consumed but not closed
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JsonWriter writer, Stream<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements.iterator(), FLUSH_INTERVAL);
+    }
+
+    /**
+     * marshall elements to JSON array one by one as they come. Writer is flushed every
+     * {@link #FLUSH_INTERVAL} elements and at the end
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JSONOutput writer, Iterator<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements, FLUSH_INTERVAL);
+    }
+
+    /**
+     * marshall iterable to JSON array element by element
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JSONOutput writer, Iterable<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements.iterator(), FLUSH_INTERVAL);
+    }
+
+    /**
+     * marshall stream to JSON array element by element, stream is consumed but not closed
+     *
+     * @param writer
+     * @param elements
+     */
+    public static void marshall(JSONOutput writer, Stream<?> elements) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+        marshall(writer, elements.iterator(), FLUSH_INTERVAL);
     }
 
     /**
@@ -55,45 +183,86 @@ public class JSONMarshaller {
      *
      * @param object
      */
-    static void marshallRecursive(JsonWriter writer, Object object) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
+    static void marshallRecursive(JSONOutput writer, Object object) throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, IOException {
         // nothing to marshall
         if (object == null)
             return;
         // primitive object is a field and does not interest us here
         if (object.getClass().isPrimitive())
             return;
+        final long start = Metrics.start();
         // object not null,  and is not primitive - iterate through getters
         // begin object writing
         writer.beginObject();
 
-        // cache methods  for classes
-        Method[] methods = methodCache.get(object.getClass());
-        if (methods == null) {
-            methods = object.getClass().getMethods();
-            methodCache.put(object.getClass(), methods);
+        final JSONCodec codec = Codecs.find(object.getClass());
+        final int properties;
+        if (codec != null) {
+            // generated code knows everything
+            properties = codec.marshallProperties(writer, object);
+        } else {
+            final Getter[] getters = getters(object.getClass());
+            for (Getter getter : getters) {
+                // write name, pre-encoded once
+                writer.name(getter.encodedName);
+                // and value as getter knows it best
+                getter.write(writer, object);
+            }
+            properties = getters.length;
         }
+        // we are done here
+        writer.endObject();
+        if (Metrics.enabled) {
+            Metrics.listener.marshalled(object.getClass(), properties, System.nanoTime() - start);
+        }
+    }
 
-        for (Method method : methods) {
-
-            // System.err.println("method:" + method);
-            // our getters are parameterless and start with "get"
-            if ((method.getName().startsWith(GETTER_PREFIX) && method.getName().length() > BEGIN_INDEX || method.getName().startsWith(IS_PREFIX) && method.getName().length() > IS_LENGTH) && (method.getModifiers() & Modifier.PUBLIC) != 0 && method.getParameterTypes().length == 0 && method.getReturnType() != void.class && !method.getName().equals("getClass")) {
-                //  System.err.println("... eligible");
-                // write name:
-                writer.name(propertize(method.getName()));
-                // retrieve value
-                Object value = method.invoke(object);
-                marshallValue(writer, value);
+    /**
+     * retrieve eligible getters of class,  introspecting it on first use
+     *
+     * @param clazz
+     * @return
+     */
+    static Getter[] getters(Class clazz) {
+        if (Metrics.enabled) {
+            Metrics.listener.cacheLookup(JSONMetrics.Cache.GETTERS, clazz);
+        }
+        return methodCache.get(clazz);
+    }
 
+    /**
+     * collect getters eligible for marshalling together with their property names
+     *
+     * @param clazz
+     * @return
+     */
+    private static Getter[] introspect(Class clazz) {
+        ArrayList<Getter> getters = new ArrayList<Getter>();
+        for (Method method : clazz.getMethods()) {
+            if (isGetter(method)) {
+                getters.add(Getter.create(propertize(method.getName()), method));
             }
-
         }
-        // we are done here
-        writer.endObject();
+        return getters.toArray(new Getter[getters.size()]);
+    }
+
+    /**
+     * our getters are public,  parameterless, return something and start with "get" or "is"
+     *
+     * @param method
+     * @return
+     */
+    static boolean isGetter(Method method) {
+        final String name = method.getName();
+        return (name.startsWith(GETTER_PREFIX) && name.length() > BEGIN_INDEX || name.startsWith(IS_PREFIX) && name.length() > IS_LENGTH)
+                && (method.getModifiers() & Modifier.PUBLIC) != 0
+                && method.getParameterTypes().length == 0
+                && method.getReturnType() != void.class
+                && !name.equals("getClass");
     }
 
     /**
-     * marshall single value
+     * marshall single value.  Also used by generated codecs for values they do not handle themselves
      *
      * @param writer
      * @param value
@@ -102,7 +271,17 @@ public class JSONMarshaller {
      * @throws NoSuchMethodException
      * @throws IllegalAccessException
      */
-    private static void marshallValue(JsonWriter writer, Object value) throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+    public static void marshallValue(JsonWriter writer, Object value) throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        marshallValue(new GsonOutput(writer), value);
+    }
+
+    /**
+     * marshall single value.  Also used by generated codecs for values they do not handle themselves
+     *
+     * @param writer
+     * @param value
+     */
+    public static void marshallValue(JSONOutput writer, Object value) throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
         if (value == null) {
             writer.nullValue();
             return;
@@ -123,6 +302,10 @@ public class JSONMarshaller {
         } else if (type.isArray()) {
             marshallArray(writer, value);
             return;
+        } else if (value instanceof Enum) {
+            // constants with own bodies are subclasses of enum
+            final Enum constant = (Enum) value;
+            EnumTable.of(constant.getDeclaringClass()).write(writer, constant);
         } else {
             // does it have default constructor?
             try {
@@ -144,18 +327,234 @@ public class JSONMarshaller {
      * @param array
      */
     public static void marshallArray(JsonWriter writer, Object array) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        marshallArray(new GsonOutput(writer), array);
+    }
+
+    /**
+     * recursively marshall array to JSON output
+     *
+     * @param writer
+     * @param array
+     */
+    public static void marshallArray(JSONOutput writer, Object array) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
         if (array.getClass().isArray()) {
             writer.beginArray();
-            Class componentType = array.getClass().getComponentType();
-            //  JSONArray retval = new JSONArray();
-            final int arrayLength = Array.getLength(array);
-            for (int i = 0; i < arrayLength; i++) {
-                marshallValue(writer, Array.get(array, i));
+            // primitive arrays are written directly,  without boxing every element
+            if (array instanceof Object[]) {
+                marshallObjects(writer, (Object[]) array);
+            } else if (array instanceof int[]) {
+                for (int value : (int[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof long[]) {
+                for (long value : (long[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof double[]) {
+                for (double value : (double[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof float[]) {
+                // float shall keep its own string representation,  so it goes out as number
+                final FloatNumber number = new FloatNumber();
+                for (float value : (float[]) array) {
+                    number.value = value;
+                    writer.value(number);
+                }
+            } else if (array instanceof short[]) {
+                for (short value : (short[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof byte[]) {
+                for (byte value : (byte[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof boolean[]) {
+                for (boolean value : (boolean[]) array) {
+                    writer.value(value);
+                }
+            } else if (array instanceof char[]) {
+                for (char value : (char[]) array) {
+                    writer.value(characterString(value));
+                }
             }
             writer.endArray();
         }
     }
 
+    /**
+     * marshall object array into character stream,  in parallel if it is big enough.
+     * Uses {@link #PARALLEL_THRESHOLD} and pool parallelism
+     *
+     * @param out   target stream,  flushed but not closed
+     * @param array array to be marshalled
+     * @param pool  pool to marshall chunks on
+     */
+    public static void marshallArray(Writer out, Object[] array, ForkJoinPool pool) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        marshallArray(out, array, pool, PARALLEL_THRESHOLD, pool.getParallelism());
+    }
+
+    /**
+     * marshall object array into character stream.  Arrays shorter than threshold are written
+     * directly,  bigger ones are cut into contiguous chunks which are marshalled into own buffers
+     * on the pool and written out in order.  Only few chunks per worker are in flight,
+     * so buffered output does not grow with array size
+     *
+     * @param out         target stream,  flushed but not closed
+     * @param array       array to be marshalled
+     * @param pool        pool to marshall chunks on
+     * @param threshold   minimal array length to go parallel
+     * @param parallelism chunks marshalled at the same time
+     */
+    public static void marshallArray(Writer out, Object[] array, ForkJoinPool pool, int threshold, int parallelism) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        if (array.length < threshold || parallelism < 2) {
+            final JsonWriter writer = new JsonWriter(out);
+            marshallArray(writer, array);
+            writer.flush();
+            return;
+        }
+
+        // several chunks per worker, so slow ones do not hold up everybody
+        final int chunkSize = (array.length + parallelism * 4 - 1) / (parallelism * 4);
+        final ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        try {
+            out.write('[');
+            boolean first = true;
+            for (int from = 0; from < array.length; from += chunkSize) {
+                // pool.submit() would wrap checked exceptions into runtime ones
+                final FutureTask<String> chunk = new FutureTask<String>(new ArrayChunk(array, from, Math.min(from + chunkSize, array.length)));
+                pool.execute(chunk);
+                pending.add(chunk);
+                if (pending.size() >= parallelism * 2) {
+                    writeChunk(out, pending.poll(), first);
+                    first = false;
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(out, pending.poll(), first);
+                first = false;
+            }
+            out.write(']');
+            out.flush();
+        } finally {
+            // failed somewhere - rest is of no use
+            for (Future<String> chunk : pending) {
+                chunk.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * wait for chunk and write it out
+     */
+    private static void writeChunk(Writer out, Future<String> chunk, boolean first) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final String json;
+        try {
+            json = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for array chunk");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+        if (!first) {
+            out.write(',');
+        }
+        out.write(json);
+        if (Metrics.enabled) {
+            Metrics.listener.charsWritten(first ? json.length() : json.length() + 1);
+        }
+    }
+
+    /**
+     * rethrow failure of worker as one of checked exceptions of marshall
+     */
+    private static RuntimeException rethrow(Throwable cause) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof InvocationTargetException) {
+            throw (InvocationTargetException) cause;
+        } else if (cause instanceof NoSuchMethodException) {
+            throw (NoSuchMethodException) cause;
+        } else if (cause instanceof IllegalAccessException) {
+            throw (IllegalAccessException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new UndeclaredThrowableException(cause);
+    }
+
+    /**
+     * write elements of object array, strings directly, everything else (also nested arrays) by value type
+     *
+     * @param writer
+     * @param array
+     */
+    private static void marshallObjects(JSONOutput writer, Object[] array) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        if (array instanceof String[]) {
+            for (String value : (String[]) array) {
+                if (value == null) {
+                    writer.nullValue();
+                } else {
+                    writer.value(value);
+                }
+            }
+        } else {
+            for (Object value : array) {
+                marshallValue(writer, value);
+            }
+        }
+    }
+
+    /**
+     * string of single characters, ascii ones are precomputed
+     */
+    private static final String[] ASCII = new String[128];
+
+    static {
+        for (char c = 0; c < ASCII.length; c++) {
+            ASCII[c] = String.valueOf(c);
+        }
+    }
+
+    static String characterString(char c) {
+        return c < ASCII.length ? ASCII[c] : String.valueOf(c);
+    }
+
+    /**
+     * reusable float holder,  writer uses only its string representation
+     */
+    private static final class FloatNumber extends Number {
+        float value;
+
+        @Override
+        public int intValue() {
+            return (int) value;
+        }
+
+        @Override
+        public long longValue() {
+            return (long) value;
+        }
+
+        @Override
+        public float floatValue() {
+            return value;
+        }
+
+        @Override
+        public double doubleValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return Float.toString(value);
+        }
+    }
+
     /**
      * convert method name to property
      *
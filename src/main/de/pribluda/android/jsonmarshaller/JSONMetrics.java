@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+/**
+ * listener of marshalling and unmarshalling hot paths.  Implementation is located once with
+ * {@link java.util.ServiceLoader},  by naming it in
+ * <code>META-INF/services/de.pribluda.android.jsonmarshaller.JSONMetrics</code>.  Without one nothing
+ * is reported,  and instrumentation is eliminated by JIT.  Methods are called from hot paths of all
+ * threads,  so implementations shall be thread safe and cheap - counters,  not logging.
+ * All methods do nothing by default
+ */
+public interface JSONMetrics {
+
+    /**
+     * introspection caches
+     */
+    enum Cache {
+        /**
+         * getters of marshalled classes
+         */
+        GETTERS,
+        /**
+         * setters of unmarshalled classes
+         */
+        SETTERS,
+        /**
+         * string constructors used for conversion of values
+         */
+        CONSTRUCTORS
+    }
+
+    /**
+     * object was marshalled
+     *
+     * @param type       bean class
+     * @param properties number of properties written
+     * @param nanos      time spent,  including nested objects
+     */
+    default void marshalled(Class type, int properties, long nanos) {
+    }
+
+    /**
+     * object was unmarshalled
+     *
+     * @param type       bean class
+     * @param properties number of properties bound
+     * @param nanos      time spent,  including nested objects
+     */
+    default void unmarshalled(Class type, int properties, long nanos) {
+    }
+
+    /**
+     * UTF-8 bytes were written out by {@link JSONByteWriter}
+     *
+     * @param count
+     */
+    default void bytesWritten(long count) {
+    }
+
+    /**
+     * UTF-8 bytes were handed to {@link JSONByteReader}
+     *
+     * @param count
+     */
+    default void bytesRead(long count) {
+    }
+
+    /**
+     * characters were written where marshaller sees them as text,  like chunks of parallel array marshalling.
+     * Streams behind GSON writer are opaque
+     *
+     * @param count
+     */
+    default void charsWritten(long count) {
+    }
+
+    /**
+     * characters were read where unmarshaller sees them as text,  like strings and lines.
+     * Streams behind GSON reader are opaque
+     *
+     * @param count
+     */
+    default void charsRead(long count) {
+    }
+
+    /**
+     * class was looked up in cache.  Hits are lookups without misses
+     *
+     * @param cache
+     * @param type
+     */
+    default void cacheLookup(Cache cache, Class type) {
+    }
+
+    /**
+     * class was not in cache and had to be introspected
+     *
+     * @param cache
+     * @param type
+     */
+    default void cacheMiss(Cache cache, Class type) {
+    }
+
+    /**
+     * JSON property was skipped,  as bean has no setter for it or it was not projected
+     *
+     * @param type bean class
+     * @param key  JSON property name
+     */
+    default void keySkipped(Class type, String key) {
+    }
+
+    /**
+     * value could not be converted to property type
+     *
+     * @param type  expected class
+     * @param value JSON value
+     * @param cause exception raised by conversion,  null if there is no way to convert at all
+     */
+    default void conversionFailed(Class type, Object value, Exception cause) {
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+/**
+ * property name encoded once and for all.  Byte output copies quoted and escaped name together
+ * with colon in one go,  instead of escaping and encoding it on every write.  Instances are immutable,
+ * so they are shared by property descriptors and kept in constants by generated codecs
+ */
+public final class JSONName {
+    /**
+     * plain property name
+     */
+    final String name;
+    /**
+     * UTF-8 of quoted,  escaped name followed by colon
+     */
+    final byte[] token;
+
+    private JSONName(String name) {
+        this.name = name;
+        this.token = JSONByteWriter.nameToken(name);
+    }
+
+    /**
+     * encode property name
+     *
+     * @param name
+     * @return
+     */
+    public static JSONName of(String name) {
+        return new JSONName(name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
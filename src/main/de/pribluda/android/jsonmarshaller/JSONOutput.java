@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+
+/**
+ * destination of marshalled JSON tokens.  Mirrors streaming API of gson JsonWriter,  so marshaller
+ * and generated codecs can write either through gson or straight into bytes with {@link JSONByteWriter}
+ */
+public interface JSONOutput {
+
+    void beginObject() throws IOException;
+
+    void endObject() throws IOException;
+
+    void beginArray() throws IOException;
+
+    void endArray() throws IOException;
+
+    /**
+     * write property name,  value shall follow
+     *
+     * @param name
+     */
+    void name(String name) throws IOException;
+
+    /**
+     * write pre-encoded property name,  value shall follow
+     *
+     * @param name
+     */
+    void name(JSONName name) throws IOException;
+
+    /**
+     * write string value,  null comes out as null
+     *
+     * @param value
+     */
+    void value(String value) throws IOException;
+
+    void value(boolean value) throws IOException;
+
+    void value(long value) throws IOException;
+
+    /**
+     * @param value finite number
+     * @throws IllegalArgumentException on NaN or infinity
+     */
+    void value(double value) throws IOException;
+
+    /**
+     * write number using its string representation,  null comes out as null
+     *
+     * @param value
+     */
+    void value(Number value) throws IOException;
+
+    void nullValue() throws IOException;
+
+    /**
+     * push everything written so far to underlying destination
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.util.HashMap;
+
+/**
+ * set of property paths to be bound during unmarshalling,  everything else is skipped without
+ * being converted.  Paths consist of property names separated by dots,  like <code>Address.City</code>.
+ * Arrays are transparent,  path continues with properties of their elements.  Property stated without
+ * further path is bound completely.  First character of names is case insensitive,  like with setters.
+ * Instances are immutable and can be shared
+ */
+public final class JSONProjection {
+    /**
+     * whole subtree is bound
+     */
+    static final JSONProjection ALL = new JSONProjection();
+
+    private final HashMap<String, JSONProjection> children = new HashMap<String, JSONProjection>();
+
+    private JSONProjection() {
+    }
+
+    /**
+     * create projection out of property paths
+     *
+     * @param paths dot separated property names
+     * @return
+     */
+    public static JSONProjection of(String... paths) {
+        final JSONProjection root = new JSONProjection();
+        for (String path : paths) {
+            final String[] names = path.split("\\.", -1);
+            JSONProjection node = root;
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].length() == 0) {
+                    throw new IllegalArgumentException("empty property name in path " + path);
+                }
+                if (i == names.length - 1) {
+                    // complete property wins over any narrower path
+                    node.put(names[i], ALL);
+                    break;
+                }
+                JSONProjection child = node.children.get(names[i]);
+                if (child == ALL) {
+                    break;
+                } else if (child == null) {
+                    child = new JSONProjection();
+                    node.put(names[i], child);
+                }
+                node = child;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * name is stored with both cases of first character,  so lookup does not need to convert keys
+     */
+    private void put(String name, JSONProjection child) {
+        children.put(Character.toUpperCase(name.charAt(0)) + name.substring(1), child);
+        children.put(Character.toLowerCase(name.charAt(0)) + name.substring(1), child);
+    }
+
+    /**
+     * projection of property
+     *
+     * @param name JSON property name
+     * @return null if property is not to be bound,  {@link #ALL} if it is to be bound completely
+     */
+    JSONProjection child(String name) {
+        return children.get(name);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * bounded table of canonical strings,  so repeated values like status codes or country names
+ * are retained once instead of once per record.  Table is set associative with few entries per
+ * set,  which are evicted in clock order - entry hit since hand passed it last time gets second chance.
+ * Strings longer than limit are not interned,  as they are seldom repeated.
+ * Table can be shared by threads.  It does not lock,  races may only lose entries
+ */
+public final class JSONStringTable {
+    /**
+     * default limit of interned string length
+     */
+    public static final int DEFAULT_MAX_LENGTH = 32;
+    private static final int WAYS = 4;
+
+    private final String[] entries;
+    private final boolean[] referenced;
+    /**
+     * clock hand of each set
+     */
+    private final byte[] hands;
+    private final int setMask;
+    private final int maxLength;
+
+    /**
+     * @param capacity maximal number of strings retained,  rounded up to power of two
+     */
+    public JSONStringTable(int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity  maximal number of strings retained,  rounded up to power of two
+     * @param maxLength longest string to be interned
+     */
+    public JSONStringTable(int capacity, int maxLength) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, but was " + capacity);
+        }
+        int size = WAYS;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        entries = new String[size];
+        referenced = new boolean[size];
+        hands = new byte[size / WAYS];
+        setMask = size / WAYS - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * retrieve canonical instance of string
+     *
+     * @param value may be null
+     * @return equal string retained by table,  or value itself
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+        final int set = spread(value.hashCode()) & setMask;
+        final int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            final String entry = entries[i];
+            if (entry != null && entry.equals(value)) {
+                referenced[i] = true;
+                return entry;
+            }
+        }
+        insert(set, value);
+        return value;
+    }
+
+    /**
+     * retrieve canonical instance of latin1 encoded string,  creating it only if it is not there
+     *
+     * @param input bytes
+     * @param start index of first byte
+     * @param end   index after last byte
+     * @return string retained by table,  or new one
+     */
+    String intern(ByteBuffer input, int start, int end) {
+        final int length = end - start;
+        if (length > maxLength) {
+            return latin1(input, start, length);
+        }
+        // the same as String.hashCode() for latin1
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (input.get(i) & 0xff);
+        }
+        final int set = spread(hash) & setMask;
+        final int base = set * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            final String entry = entries[i];
+            if (entry != null && matches(entry, input, start, length)) {
+                referenced[i] = true;
+                return entry;
+            }
+        }
+        final String value = latin1(input, start, length);
+        insert(set, value);
+        return value;
+    }
+
+    /**
+     * replace first entry of set not referenced since hand passed it,  clearing references on the way
+     */
+    private void insert(int set, String value) {
+        final int base = set * WAYS;
+        int hand = hands[set];
+        while (true) {
+            final int i = base + hand;
+            hand = (hand + 1) & (WAYS - 1);
+            if (entries[i] == null || !referenced[i]) {
+                entries[i] = value;
+                referenced[i] = false;
+                hands[set] = (byte) hand;
+                return;
+            }
+            referenced[i] = false;
+        }
+    }
+
+    private static boolean matches(String entry, ByteBuffer input, int start, int length) {
+        if (entry.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.charAt(i) != (input.get(start + i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String latin1(ByteBuffer input, int start, int length) {
+        if (input.hasArray()) {
+            return new String(input.array(), input.arrayOffset() + start, length, StandardCharsets.ISO_8859_1);
+        }
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (input.get(start + i) & 0xff);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * spread bits,  as only lower ones are used
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
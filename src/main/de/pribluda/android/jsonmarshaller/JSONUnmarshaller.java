@@ -21,25 +21,76 @@ package de.pribluda.android.jsonmarshaller;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 import java.io.StringReader;
-import java.lang.reflect.Array;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * performs unmarshalling of JSON data creating objects
  */
 public class JSONUnmarshaller {
     private static final String SETTER_PREFIX = "set";
+    /**
+     * default amount of lines bound in one parallel task
+     */
+    public static final int LINE_BATCH = 256;
 
     static final HashMap<Class, Class> primitves = new HashMap<Class, Class>();
-    static final HashMap<Class, Method[]> methodCache = new HashMap();
-    static final HashMap<Class, Constructor> constructorCache = new HashMap();
+    /**
+     * canonical strings for names and string values,  null if they are not interned
+     */
+    private static volatile JSONStringTable stringTable;
+    /**
+     * setters of classes
+     */
+    static final ClassCache<SetterTable> methodCache = new ClassCache<SetterTable>(type -> {
+        if (Metrics.enabled) {
+            Metrics.listener.cacheMiss(JSONMetrics.Cache.SETTERS, type);
+        }
+        // snapshot being loaded spares introspection
+        final Setter[] restored = JSONIntrospection.restoredSetters.get(type);
+        return new SetterTable(restored != null ? restored : introspect(type), SETTER_PREFIX.length());
+    });
+    /**
+     * constructors taking string,  null if class has none
+     */
+    static final ClassCache<Constructor> constructorCache = new ClassCache<Constructor>(type -> {
+        if (Metrics.enabled) {
+            Metrics.listener.cacheMiss(JSONMetrics.Cache.CONSTRUCTORS, type);
+        }
+        try {
+            return type.getConstructor(String.class);
+        } catch (NoSuchMethodException nsme) {
+            return null;
+        }
+    });
 
     static {
         primitves.put(Integer.TYPE, Integer.class);
@@ -48,6 +99,42 @@ public class JSONUnmarshaller {
         primitves.put(Boolean.TYPE, Boolean.class);
         primitves.put(Character.TYPE, Character.class);
         primitves.put(Short.TYPE, Short.class);
+        primitves.put(Float.TYPE, Float.class);
+        primitves.put(Byte.TYPE, Byte.class);
+    }
+
+    /**
+     * intern property names and string values of everything unmarshalled from now on,  so equal values
+     * share one instance.  Pays off for big amounts of records with few distinct values.
+     * {@link JSONByteReader} looks strings up without decoding them
+     *
+     * @param strings table to be used,  null to stop interning
+     */
+    public static void setStringTable(JSONStringTable strings) {
+        stringTable = strings;
+    }
+
+    /**
+     * @return table strings are interned with,  null if there is none
+     */
+    public static JSONStringTable getStringTable() {
+        return stringTable;
+    }
+
+    /**
+     * read property name,  interned if there is string table
+     */
+    static String nextName(JSONInput reader) throws IOException {
+        final JSONStringTable strings = stringTable;
+        return strings == null ? reader.nextName() : reader.nextName(strings);
+    }
+
+    /**
+     * read string value,  interned if there is string table
+     */
+    static String nextString(JSONInput reader) throws IOException {
+        final JSONStringTable strings = stringTable;
+        return strings == null ? reader.nextString() : reader.nextString(strings);
     }
 
     /**
@@ -62,50 +149,176 @@ public class JSONUnmarshaller {
      * @throws InvocationTargetException
      */
     public static <T> T unmarshall(JsonReader reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return unmarshall(new GsonInput(reader), beanToBeCreatedClass);
+    }
+
+    /**
+     * unmarshall single JSON object out of JSON input,  for example {@link JSONByteReader}
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> T unmarshall(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return unmarshall(reader, beanToBeCreatedClass, null);
+    }
+
+    /**
+     * unmarshall only properties of projection,  everything else is skipped without being converted
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @param projection           property paths to be bound
+     * @return
+     */
+    public static <T> T unmarshall(JsonReader reader, java.lang.Class<T> beanToBeCreatedClass, JSONProjection projection) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return unmarshall(new GsonInput(reader), beanToBeCreatedClass, projection);
+    }
+
+    /**
+     * unmarshall only properties of projection out of JSON input.  Skipped values are not even
+     * decoded by {@link JSONByteReader}
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @param projection           property paths to be bound,  null binds everything
+     * @return
+     */
+    public static <T> T unmarshall(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass, JSONProjection projection) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
         // nothing there - bail out
         reader.beginObject();
 
         if (reader.peek() == null) {
             return null;
         }
-        T value = beanToBeCreatedClass.getConstructor().newInstance();
-        while (reader.hasNext()) {
-            String key = reader.nextName();
+        final JSONCodec<T> codec = Codecs.find(beanToBeCreatedClass);
+        T value = codec != null ? codec.newInstance() : beanToBeCreatedClass.getConstructor().newInstance();
+        populate(reader, value, codec, false, projection);
+        return value;
+    }
 
+    /**
+     * unmarshall JSON object lazily into implementation of interface.  Properties are matched to
+     * getters of interface,  scalar ones are converted right away.  Nested objects and arrays are only
+     * captured as byte ranges and decoded on first call of their getter,  nested interfaces and arrays
+     * of them are lazy again.  Proxy refers to input bytes,  so they shall not be modified while it is in use.
+     * Getters throw {@link java.io.UncheckedIOException} or {@link java.lang.reflect.UndeclaredThrowableException}
+     * if deferred decoding fails
+     *
+     * @param reader        JSON bytes positioned before object
+     * @param beanInterface interface to be implemented
+     * @return proxy implementing interface
+     */
+    public static <T> T unmarshallLazy(JSONByteReader reader, Class<T> beanInterface) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return LazyObject.create(reader, beanInterface);
+    }
+
+    /**
+     * unmarshall JSON object into existing instance instead of creating new one.  Nested objects
+     * and arrays already present in properties are populated in place as well,  arrays are kept
+     * if element count matches.  Properties absent in JSON are left untouched
+     *
+     * @param reader
+     * @param target instance to be populated
+     * @return target itself
+     */
+    public static <T> T unmarshallInto(JsonReader reader, T target) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return unmarshallInto(new GsonInput(reader), target);
+    }
 
-            //  capitalise to standard setter pattern
-            StringBuilder sb = new StringBuilder();
-            sb.append(SETTER_PREFIX).append(Character.toUpperCase(key.charAt(0))).append(key.substring(1));
-            String methodName = sb.toString();
+    /**
+     * unmarshall JSON object out of JSON input into existing instance,  see {@link #unmarshallInto(JsonReader, Object)}
+     *
+     * @param reader
+     * @param target instance to be populated
+     * @return target itself
+     */
+    public static <T> T unmarshallInto(JSONInput reader, T target) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        return unmarshallInto(reader, target, null);
+    }
 
+    /**
+     * update only properties of projection in existing instance
+     *
+     * @param reader
+     * @param target     instance to be populated
+     * @param projection property paths to be bound,  null binds everything
+     * @return target itself
+     */
+    public static <T> T unmarshallInto(JSONInput reader, T target, JSONProjection projection) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        reader.beginObject();
+        populate(reader, target, Codecs.find(target.getClass()), true, projection);
+        return target;
+    }
 
-            Method method = getCandidateMethod(beanToBeCreatedClass, methodName);
+    /**
+     * read properties of started object into bean and end object
+     *
+     * @param reuse      whether nested values already present in bean shall be populated in place
+     * @param projection properties to be bound,  null for all of them
+     */
+    private static <T> void populate(JSONInput reader, T value, JSONCodec<T> codec, boolean reuse, JSONProjection projection) throws IOException, NoSuchMethodException, InvocationTargetException, IllegalAccessException, InstantiationException {
+        final Class beanClass = value.getClass();
+        final long start = Metrics.start();
+        int properties = 0;
+        while (reader.hasNext()) {
+            String key = nextName(reader);
 
-            // must be kind of setter method
-            if (method != null) {
-                Class clazz = method.getParameterTypes()[0];
-                // as we have setter, we can process value
-                Object v = unmarshalValue(reader, clazz);
-
-                // can we use setter method directly?
-                if (clazz.isAssignableFrom(v.getClass())) {
-                    method.invoke(value, v);
+            JSONProjection nested = null;
+            if (projection != null) {
+                nested = projection.child(key);
+                if (nested == null) {
+                    // not wanted - skip structurally
+                    reader.skipValue();
+                    if (Metrics.enabled) {
+                        Metrics.listener.keySkipped(beanClass, key);
+                    }
                     continue;
+                } else if (nested == JSONProjection.ALL) {
+                    nested = null;
                 }
+            }
 
-                Object obj = convertToObject(clazz, v);
-                if (obj != null)
-                    method.invoke(value, obj);
+            // generated code knows better,  but binds nested values completely
+            if (codec != null) {
+                if (codec.unmarshallProperty(reader, key, value)) {
+                    properties++;
+                } else {
+                    reader.skipValue();
+                    if (Metrics.enabled) {
+                        Metrics.listener.keySkipped(beanClass, key);
+                    }
+                }
+                continue;
+            }
+
+            // setter table capitalises key to standard setter pattern by itself
+            Setter setter = getCandidateMethod(beanClass, key);
+
+            // must be kind of setter method
+            if (setter != null) {
+                // as we have setter, it knows how to process value
+                if (reuse) {
+                    setter.readInto(reader, value, nested);
+                } else if (nested == null) {
+                    setter.read(reader, value);
+                } else {
+                    setter.read(reader, value, nested);
+                }
+                properties++;
             } else {
                 // no suitable method was found - skip this value altogether
                 reader.skipValue();
+                if (Metrics.enabled) {
+                    Metrics.listener.keySkipped(beanClass, key);
+                }
             }
         }
 
         reader.endObject();
-
-        return value;
-
+        if (Metrics.enabled) {
+            Metrics.listener.unmarshalled(beanClass, properties, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -116,17 +329,299 @@ public class JSONUnmarshaller {
      * @return
      */
     public static <T> List<T> unmarshallArray(JsonReader reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return unmarshallArray(new GsonInput(reader), beanToBeCreatedClass);
+    }
+
+    /**
+     * read array out of JSON input into list
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> List<T> unmarshallArray(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return unmarshallArray(reader, beanToBeCreatedClass, null);
+    }
+
+    /**
+     * read array into list binding only properties of projection
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @param projection           property paths to be bound,  null binds everything
+     * @return
+     */
+    public static <T> List<T> unmarshallArray(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass, JSONProjection projection) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
         ArrayList<T> retval = new ArrayList();
         reader.beginArray();
         // read objects after each other
         while (reader.peek() == JsonToken.BEGIN_OBJECT) {
-            retval.add(unmarshall(reader, beanToBeCreatedClass));
+            retval.add(unmarshall(reader, beanToBeCreatedClass, projection));
         }
         reader.endArray();
 
         return retval;
     }
 
+    /**
+     * iterate over JSON array lazily,  creating one object per next() call.  So memory
+     * does not grow with array size.  Reader is closed when array is exhausted.
+     * Checked exceptions come out as {@link java.io.UncheckedIOException} or
+     * {@link java.lang.reflect.UndeclaredThrowableException}
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     * @throws IOException if there is no array
+     */
+    public static <T> Iterator<T> iterate(JsonReader reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException {
+        return iterate(new GsonInput(reader), beanToBeCreatedClass);
+    }
+
+    /**
+     * iterate over JSON array of JSON input lazily,  see {@link #iterate(JsonReader, Class)}
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     * @throws IOException if there is no array
+     */
+    public static <T> Iterator<T> iterate(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException {
+        reader.beginArray();
+        return new ArrayIterator<T>(reader, beanToBeCreatedClass);
+    }
+
+    /**
+     * stream over JSON array,  same as {@link #iterate(JsonReader, Class)}.  Closing stream
+     * closes reader,  also if array is not exhausted
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     * @throws IOException if there is no array
+     */
+    public static <T> Stream<T> stream(JsonReader reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException {
+        return stream(new GsonInput(reader), beanToBeCreatedClass);
+    }
+
+    /**
+     * stream over JSON array of JSON input,  see {@link #stream(JsonReader, Class)}
+     *
+     * @param reader
+     * @param beanToBeCreatedClass
+     * @return
+     * @throws IOException if there is no array
+     */
+    public static <T> Stream<T> stream(JSONInput reader, java.lang.Class<T> beanToBeCreatedClass) throws IOException {
+        reader.beginArray();
+        final ArrayIterator<T> iterator = new ArrayIterator<T>(reader, beanToBeCreatedClass);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    public void run() {
+                        try {
+                            iterator.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * bind newline delimited JSON (one object per line) in parallel.  Lines are collected in batches
+     * of given size and bound on the pool,  results are delivered to consumer on calling thread,
+     * either in input order or as soon as batch is done.  Only few batches per worker are in flight,
+     * so memory does not grow with input size.  Blank lines are skipped
+     *
+     * @param input     line source,  not closed
+     * @param beanClass class of objects
+     * @param pool      pool to bind batches on
+     * @param batchSize lines per batch
+     * @param ordered   whether results shall come in input order
+     * @param consumer  receiver of bound objects
+     */
+    public static <T> void unmarshallLines(Reader input, Class<T> beanClass, ForkJoinPool pool, int batchSize, boolean ordered, Consumer<? super T> consumer) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final BufferedReader lines = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        // ordered delivery waits for futures in turn,  so only unordered one needs completion queue.
+        // completion service goes through plain executor,  otherwise it would let pool create tasks
+        // and these wrap checked exceptions of batch into runtime ones
+        final CompletionService<List<T>> completion = ordered ? null : new ExecutorCompletionService<List<T>>(new Executor() {
+            public void execute(Runnable command) {
+                pool.execute(command);
+            }
+        });
+        final ArrayDeque<Future<List<T>>> pending = new ArrayDeque<Future<List<T>>>();
+        final int window = pool.getParallelism() * 2;
+
+        try {
+            List<String> batch = new ArrayList<String>(batchSize);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                batch.add(line);
+                if (batch.size() == batchSize) {
+                    pending.add(submit(pool, completion, new LineBatch<T>(batch, beanClass)));
+                    batch = new ArrayList<String>(batchSize);
+                    // do not read ahead too far
+                    if (pending.size() >= window) {
+                        deliver(completion, pending, ordered, consumer);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submit(pool, completion, new LineBatch<T>(batch, beanClass)));
+            }
+            while (!pending.isEmpty()) {
+                deliver(completion, pending, ordered, consumer);
+            }
+        } finally {
+            // failed somewhere - nobody is interested in the rest
+            for (Future<List<T>> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * bind newline delimited JSON in parallel into list,  keeping input order
+     *
+     * @param input     line source,  not closed
+     * @param beanClass class of objects
+     * @param pool      pool to bind batches on
+     * @return
+     */
+    public static <T> List<T> unmarshallLines(Reader input, Class<T> beanClass, ForkJoinPool pool) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final ArrayList<T> retval = new ArrayList<T>();
+        unmarshallLines(input, beanClass, pool, LINE_BATCH, true, new Consumer<T>() {
+            public void accept(T t) {
+                retval.add(t);
+            }
+        });
+        return retval;
+    }
+
+    private static <T> Future<List<T>> submit(ForkJoinPool pool, CompletionService<List<T>> completion, LineBatch<T> batch) {
+        if (completion != null) {
+            return completion.submit(batch);
+        }
+        // pool.submit() would also wrap checked exceptions of batch into runtime ones
+        final FutureTask<List<T>> task = new FutureTask<List<T>>(batch);
+        pool.execute(task);
+        return task;
+    }
+
+    /**
+     * wait for one batch and hand its objects to consumer.  Ordered delivery waits for oldest batch,
+     * unordered one for whichever completes first
+     */
+    private static <T> void deliver(CompletionService<List<T>> completion, ArrayDeque<Future<List<T>>> pending, boolean ordered, Consumer<? super T> consumer) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final List<T> objects;
+        try {
+            if (ordered) {
+                objects = pending.peek().get();
+                pending.poll();
+            } else {
+                final Future<List<T>> done = completion.take();
+                pending.remove(done);
+                objects = done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for line batch");
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        }
+        for (T object : objects) {
+            consumer.accept(object);
+        }
+    }
+
+    /**
+     * rethrow failure of worker as one of checked exceptions of unmarshall
+     */
+    private static RuntimeException rethrow(Throwable cause) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause instanceof InvocationTargetException) {
+            throw (InvocationTargetException) cause;
+        } else if (cause instanceof NoSuchMethodException) {
+            throw (NoSuchMethodException) cause;
+        } else if (cause instanceof InstantiationException) {
+            throw (InstantiationException) cause;
+        } else if (cause instanceof IllegalAccessException) {
+            throw (IllegalAccessException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new UndeclaredThrowableException(cause);
+    }
+
+    /**
+     * unmarshall current value and convert it to desired type if possible.  Used by generated codecs
+     * for values they do not handle themselves
+     *
+     * @param reader json reader to pull value from
+     * @param clazz  expected class
+     * @return converted value,  or null if value is null or can not be converted
+     */
+    public static Object unmarshallProperty(JsonReader reader, Class clazz) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+        return unmarshallProperty(new GsonInput(reader), clazz);
+    }
+
+    /**
+     * unmarshall current value and convert it to desired type if possible.  Used by generated codecs
+     * for values they do not handle themselves
+     *
+     * @param reader json input to pull value from
+     * @param clazz  expected class
+     * @return converted value,  or null if value is null or can not be converted
+     */
+    public static Object unmarshallProperty(JSONInput reader, Class clazz) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+        return unmarshallProperty(reader, clazz, null);
+    }
+
+    /**
+     * unmarshall current value binding only properties of projection
+     *
+     * @param reader     json input to pull value from
+     * @param clazz      expected class
+     * @param projection property paths to be bound,  null binds everything
+     * @return converted value,  or null if value is null or can not be converted
+     */
+    static Object unmarshallProperty(JSONInput reader, Class clazz, JSONProjection projection) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+        Object v = unmarshalValue(reader, clazz, projection);
+        if (v == null || clazz.isAssignableFrom(v.getClass())) {
+            return v;
+        }
+        return convertToObject(clazz, v);
+    }
+
+    /**
+     * unmarshall current value,  populating existing object or array in place if JSON value
+     * is of the same kind
+     *
+     * @param reader   json input to pull value from
+     * @param clazz    expected class
+     * @param existing   current value,  may be null
+     * @param projection property paths to be bound,  null binds everything
+     * @return existing value if it was populated,  otherwise converted value or null
+     */
+    static Object unmarshallPropertyInto(JSONInput reader, Class clazz, Object existing, JSONProjection projection) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+        if (existing != null && clazz.isInstance(existing)) {
+            final JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_ARRAY && clazz.isArray()) {
+                return populateRecusrsive(clazz, reader, existing, projection);
+            } else if (token == JsonToken.BEGIN_OBJECT && !clazz.isArray()) {
+                return unmarshallInto(reader, existing, projection);
+            }
+        }
+        return unmarshallProperty(reader, clazz, projection);
+    }
+
     /**
      * convert unmarshalled value to object. here we thread only primitive values because
      * objects were already processed.  Only 2 types of values can occur and be treated  here
@@ -161,39 +656,59 @@ public class JSONUnmarshaller {
             if (stingValue.length() > 0) {
                 return new Character(stingValue.charAt(0));
             } else {
+                if (Metrics.enabled) {
+                    Metrics.listener.conversionFailed(clazz, v, null);
+                }
                 return null;
             }
 
         }
 
+        // enums have no constructors,  but constant tables
+        if (clazz.isEnum()) {
+            final Enum constant = v instanceof String ? EnumTable.of(clazz).get((String) v) : null;
+            if (constant == null && Metrics.enabled) {
+                Metrics.listener.conversionFailed(clazz, v, null);
+            }
+            return constant;
+        }
+
         Object obj = null;
         //System.err.println(" **************** retrieve constructor to convert to object " + clazz + " value:" + v.getClass());
         // if we are here, we can process only string.
         if (String.class.equals(v.getClass())) {
             // as reflection is expensive on android,  we go for some direct access
-            if (Byte.class.equals(clazz)) {
-                return Byte.parseByte((String) v);
-            } else if (Double.class.equals(clazz)) {
-                return Double.parseDouble((String) v);
-            } else if (Float.class.equals(clazz)) {
-                return Float.parseFloat((String) v);
-            } else if (Integer.class.equals(clazz)) {
-                return Integer.parseInt((String) v);
-            } else if (Long.class.equals(clazz)) {
-                return Long.parseLong((String) v);
-            } else if (Short.class.equals(clazz)) {
-                return Short.parseShort((String) v);
+            try {
+                if (Byte.class.equals(clazz)) {
+                    return Byte.parseByte((String) v);
+                } else if (Double.class.equals(clazz)) {
+                    return Double.parseDouble((String) v);
+                } else if (Float.class.equals(clazz)) {
+                    return Float.parseFloat((String) v);
+                } else if (Integer.class.equals(clazz)) {
+                    return Integer.parseInt((String) v);
+                } else if (Long.class.equals(clazz)) {
+                    return Long.parseLong((String) v);
+                } else if (Short.class.equals(clazz)) {
+                    return Short.parseShort((String) v);
+                }
+            } catch (NumberFormatException e) {
+                // report,  but do not change behaviour
+                if (Metrics.enabled) {
+                    Metrics.listener.conversionFailed(clazz, v, e);
+                }
+                throw e;
             }
             // ok, here we go, try to obtain constructor
+            if (Metrics.enabled) {
+                Metrics.listener.cacheLookup(JSONMetrics.Cache.CONSTRUCTORS, clazz);
+            }
             Constructor constructor = constructorCache.get(clazz);
-
-            try {
-                if (constructor == null) {
-                    constructor = clazz.getConstructor(v.getClass());
-                    constructorCache.put(clazz, constructor);
-                }
-            } catch (NoSuchMethodException nsme) {
+            if (constructor == null) {
                 // we are failed here,  but so what? be lenient  and ignore this
+                if (Metrics.enabled) {
+                    Metrics.listener.conversionFailed(clazz, v, null);
+                }
                 return null;
             }
 
@@ -201,7 +716,13 @@ public class JSONUnmarshaller {
                 obj = constructor.newInstance(v);
             } catch (Exception e) {
                 // we can not instantiate - so what...
+                if (Metrics.enabled) {
+                    Metrics.listener.conversionFailed(clazz, v, e);
+                }
             }
+        } else if (Metrics.enabled) {
+            // boolean for anything but boolean
+            Metrics.listener.conversionFailed(clazz, v, null);
         }
         return obj;
     }
@@ -210,8 +731,9 @@ public class JSONUnmarshaller {
     /**
      * unmarshal current value, possibly walking down the three
      *
-     * @param reader json reader to pull value from
-     * @param clazz  expected class
+     * @param reader     json reader to pull value from
+     * @param clazz      expected class
+     * @param projection property paths of nested objects to be bound,  null binds everything
      * @return
      * @throws IOException
      * @throws IllegalAccessException
@@ -219,15 +741,15 @@ public class JSONUnmarshaller {
      * @throws InstantiationException
      * @throws NoSuchMethodException
      */
-    private static Object unmarshalValue(JsonReader reader, Class clazz) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+    private static Object unmarshalValue(JSONInput reader, Class clazz, JSONProjection projection) throws IOException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
 
         Object value = null;
 
         switch (reader.peek()) {
             case STRING:
             case NUMBER:
-                // process string
-                value = reader.nextString();
+                // process string,  only strings retained as such are worth interning
+                value = String.class.equals(clazz) ? nextString(reader) : reader.nextString();
                 break;
             case BOOLEAN:
                 value = reader.nextBoolean();
@@ -236,14 +758,14 @@ public class JSONUnmarshaller {
                 //  we are interested in arrays
                 if (clazz.isArray()) {
                     // populate field value from JSON Array
-                    value = populateRecusrsive(clazz, reader);
+                    value = populateRecusrsive(clazz, reader, null, projection);
                 } else {
                     reader.skipValue();
                 }
                 break;
             case BEGIN_OBJECT:
                 // so, we are unmarshalling nested object - recurse
-                value = unmarshall(reader, clazz);
+                value = unmarshall(reader, clazz, projection);
                 break;
             default:
                 // do not know what to do with it,  skip
@@ -254,70 +776,72 @@ public class JSONUnmarshaller {
     }
 
     /**
-     * recursively populate array out of hierarchy of JSON Objects
+     * recursively populate array,  reusing existing one if element count matches
      *
      * @param arrayClass original array class
      * @param reader     reader to be processed
+     * @param existing   array to be reused,  may be null
+     * @param projection property paths of elements to be bound,  null binds everything
      * @return
      */
-    private static Object populateRecusrsive(Class arrayClass, JsonReader reader) throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException, IOException {
-        ArrayList value = new ArrayList();
-        Object retval = null;
-        reader.beginArray();
-        if (arrayClass.isArray()) {
-            // create list, as we do not know size yet
-
-
-            final Class componentType = arrayClass.getComponentType();
-            // iterate over reader
-            while (reader.hasNext()) {
-                Object component;
-                if (componentType.isArray()) {
-                    // component is array - dive down
-                    component = populateRecusrsive(componentType, reader);
-                    if (component != null) {
-                        value.add(component);
-                    }
-                } else {
-                    // component is leaf,
-                    Object leaf = unmarshalValue(reader, componentType);
-                    Object obj = convertToObject(componentType, leaf);
-                    if (obj != null) {
-                        value.add(obj);
-                    }
-                }
-            }
-            // copy everything to array,
-            retval = Array.newInstance(componentType, value.size());
-            for (int i = 0; i < value.size(); i++) {
-                Array.set(retval, i, value.get(i));
-            }
-        } else {
+    private static Object populateRecusrsive(Class arrayClass, JSONInput reader, Object existing, JSONProjection projection) throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException, IOException {
+        if (!arrayClass.isArray()) {
             return null;
         }
+        // collect elements, as we do not know size yet.
+        // nested arrays are components of object array and dive down by themselves.
+        // existing elements are populated only if their count is known to match,  byte reader
+        // can tell it by looking ahead
+        final boolean populate = existing instanceof Object[] && ((Object[]) existing).length > 0
+                && reader instanceof JSONByteReader && ((JSONByteReader) reader).countElements() == ((Object[]) existing).length;
+        final ArrayBuilder builder = ArrayBuilder.create(arrayClass.getComponentType(), existing, projection, populate);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            builder.add(reader);
+        }
         reader.endArray();
 
-        return retval;
+        return builder.toArray();
     }
 
     /**
      * retrieve candidate setter method
      *
      * @param clazz
-     * @param name
+     * @param key   JSON property name
      * @return
      */
-    private static Method getCandidateMethod(Class clazz, String name) {
-        Method[] candidates = methodCache.get(clazz);
-        if (candidates == null) {
-            candidates = clazz.getMethods();
-            methodCache.put(clazz, candidates);
+    private static Setter getCandidateMethod(Class clazz, String key) {
+        if (Metrics.enabled) {
+            Metrics.listener.cacheLookup(JSONMetrics.Cache.SETTERS, clazz);
         }
-        for (Method method : candidates) {
-            if (method.getParameterTypes().length == 1 && name.equals(method.getName()))
-                return method;
+        return methodCache.get(clazz).get(key);
+    }
+
+    /**
+     * collect single argument setter methods of class
+     *
+     * @param clazz
+     * @return
+     */
+    private static Setter[] introspect(Class clazz) {
+        ArrayList<Setter> setters = new ArrayList<Setter>();
+        for (Method method : clazz.getMethods()) {
+            if (isSetter(method)) {
+                setters.add(Setter.create(method));
+            }
         }
-        return null;
+        return setters.toArray(new Setter[setters.size()]);
+    }
+
+    /**
+     * our setters take single argument and start with "set"
+     *
+     * @param method
+     * @return
+     */
+    static boolean isSetter(Method method) {
+        return method.getParameterTypes().length == 1 && method.getName().startsWith(SETTER_PREFIX);
     }
 
 
@@ -334,6 +858,80 @@ public class JSONUnmarshaller {
      * @throws IllegalAccessException
      */
     public static <T> T unmarshall(String json, java.lang.Class<T> beanToBeCreatedClass) throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException, IOException {
+        if (Metrics.enabled) {
+            Metrics.listener.charsRead(json.length());
+        }
         return unmarshall(new JsonReader(new StringReader(json)), beanToBeCreatedClass);
     }
+
+    /**
+     * unmarshall single JSON object out of file,  parsing directly from mapped bytes.
+     * Reading starts at current position of channel,  channel is not closed
+     *
+     * @param channel UTF-8 encoded JSON
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> T unmarshall(FileChannel channel, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return unmarshall(mapped(channel), beanToBeCreatedClass);
+    }
+
+    /**
+     * unmarshall single JSON object out of file,  parsing directly from mapped bytes
+     *
+     * @param path UTF-8 encoded JSON
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> T unmarshall(Path path, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return unmarshall(channel, beanToBeCreatedClass);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * read array out of file into list,  parsing directly from mapped bytes.
+     * Reading starts at current position of channel,  channel is not closed
+     *
+     * @param channel UTF-8 encoded JSON
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> List<T> unmarshallArray(FileChannel channel, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        return unmarshallArray(mapped(channel), beanToBeCreatedClass);
+    }
+
+    /**
+     * read array out of file into list,  parsing directly from mapped bytes
+     *
+     * @param path UTF-8 encoded JSON
+     * @param beanToBeCreatedClass
+     * @return
+     */
+    public static <T> List<T> unmarshallArray(Path path, java.lang.Class<T> beanToBeCreatedClass) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return unmarshallArray(channel, beanToBeCreatedClass);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * parse mapped file with byte parser.  Files too big for single buffer are decoded
+     * window by window for gson reader
+     *
+     * @param channel
+     * @return
+     */
+    private static JSONInput mapped(FileChannel channel) throws IOException {
+        final long size = channel.size() - channel.position();
+        if (size <= Integer.MAX_VALUE) {
+            return new JSONByteReader(channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), size));
+        }
+        return new GsonInput(new JsonReader(new MappedReader(channel)));
+    }
 }
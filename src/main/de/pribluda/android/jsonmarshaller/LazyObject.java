@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * proxy handler of lazily unmarshalled interface.  Scalar properties are converted right away,
+ * nested objects and arrays are only captured as byte ranges of input and decoded on first call
+ * of their getter.  Decoded values are kept,  so every range is decoded at most once.
+ * As getters can not throw checked exceptions,  IO problems come out as {@link UncheckedIOException}
+ * and reflection problems as {@link UndeclaredThrowableException}
+ */
+final class LazyObject implements InvocationHandler {
+    private static final String GETTER_PREFIX = "get";
+    private static final String BOOLEAN_GETTER_PREFIX = "is";
+
+    /**
+     * getters of interfaces by JSON name,  stored with both cases of first character
+     */
+    static final ClassCache<HashMap<String, Method>> getterCache = new ClassCache<HashMap<String, Method>>(LazyObject::introspect);
+
+    private final Class type;
+    /**
+     * decoded values or captured ranges by getter,  absent properties are not there
+     */
+    private final HashMap<Method, Object> values = new HashMap<Method, Object>();
+
+    private LazyObject(Class type) {
+        this.type = type;
+    }
+
+    /**
+     * capture JSON object as lazy implementation of interface
+     *
+     * @param reader positioned before object
+     * @param type   interface to be implemented
+     * @return proxy implementing interface
+     */
+    static <T> T create(JSONByteReader reader, Class<T> type) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        if (!type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " is not an interface");
+        }
+        final HashMap<String, Method> getters = getterCache.get(type);
+        final LazyObject handler = new LazyObject(type);
+
+        final long start = Metrics.start();
+        int properties = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = JSONUnmarshaller.nextName(reader);
+            final Method getter = getters.get(key);
+            if (getter == null) {
+                reader.skipValue();
+                if (Metrics.enabled) {
+                    Metrics.listener.keySkipped(type, key);
+                }
+                continue;
+            }
+            final JsonToken token = reader.peek();
+            final Object value = token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY
+                    ? new Raw(reader.captureValue())
+                    : JSONUnmarshaller.unmarshallProperty(reader, getter.getReturnType());
+            if (value != null) {
+                handler.values.put(getter, value);
+            }
+            properties++;
+        }
+        reader.endObject();
+        if (Metrics.enabled) {
+            Metrics.listener.unmarshalled(type, properties, System.nanoTime() - start);
+        }
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, handler));
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+            return "lazy " + type.getName();
+        }
+        if (args != null && args.length > 0) {
+            throw new UnsupportedOperationException(method.getName());
+        }
+
+        final Class returnType = method.getReturnType();
+        Object value;
+        synchronized (values) {
+            value = values.get(method);
+            if (value instanceof Raw) {
+                try {
+                    value = decode(returnType, new JSONByteReader(((Raw) value).bytes));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (Exception e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+                if (value != null) {
+                    values.put(method, value);
+                } else {
+                    values.remove(method);
+                }
+            }
+        }
+
+        if (value == null && returnType.isPrimitive()) {
+            // default value of primitive
+            return Array.get(Array.newInstance(returnType, 1), 0);
+        }
+        return value;
+    }
+
+    /**
+     * decode captured value.  Nested interfaces and arrays of them are lazy again,
+     * everything else is unmarshalled completely
+     */
+    private static Object decode(Class type, JSONByteReader reader) throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        if (type.isInterface()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                return create(reader, type);
+            }
+            reader.skipValue();
+            return null;
+        }
+        if (type.isArray() && isLazy(type)) {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                return null;
+            }
+            final Class componentType = type.getComponentType();
+            final ArrayList<Object> elements = new ArrayList<Object>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                final Object element = decode(componentType, reader);
+                if (element != null) {
+                    elements.add(element);
+                }
+            }
+            reader.endArray();
+            return elements.toArray((Object[]) Array.newInstance(componentType, elements.size()));
+        }
+        return JSONUnmarshaller.unmarshallProperty(reader, type);
+    }
+
+    /**
+     * whether innermost component of array is interface
+     */
+    private static boolean isLazy(Class type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isInterface();
+    }
+
+    /**
+     * collect getters without parameters,  boolean ones may be prefixed with "is"
+     */
+    private static HashMap<String, Method> introspect(Class type) {
+        final HashMap<String, Method> getters = new HashMap<String, Method>();
+        for (Method method : type.getMethods()) {
+            if (method.getParameterTypes().length > 0 || method.getReturnType() == Void.TYPE) {
+                continue;
+            }
+            final String methodName = method.getName();
+            final String name;
+            if (methodName.startsWith(GETTER_PREFIX) && methodName.length() > GETTER_PREFIX.length()) {
+                name = methodName.substring(GETTER_PREFIX.length());
+            } else if (methodName.startsWith(BOOLEAN_GETTER_PREFIX) && methodName.length() > BOOLEAN_GETTER_PREFIX.length()
+                    && (method.getReturnType() == Boolean.TYPE || method.getReturnType() == Boolean.class)) {
+                name = methodName.substring(BOOLEAN_GETTER_PREFIX.length());
+            } else {
+                continue;
+            }
+            getters.put(name, method);
+            getters.put(Character.toLowerCase(name.charAt(0)) + name.substring(1), method);
+        }
+        return getters;
+    }
+
+    /**
+     * bytes of nested object or array not decoded yet
+     */
+    private static final class Raw {
+        final ByteBuffer bytes;
+
+        Raw(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
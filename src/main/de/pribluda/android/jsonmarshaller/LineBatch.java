@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * batch of JSON lines bound on worker thread.  Lines are independent documents,
+ * so batches share nothing but class metadata caches,  which are thread safe
+ */
+final class LineBatch<T> implements Callable<List<T>> {
+    private final List<String> lines;
+    private final Class<T> beanClass;
+
+    LineBatch(List<String> lines, Class<T> beanClass) {
+        this.lines = lines;
+        this.beanClass = beanClass;
+    }
+
+    public List<T> call() throws Exception {
+        final ArrayList<T> result = new ArrayList<T>(lines.size());
+        for (String line : lines) {
+            result.add(JSONUnmarshaller.unmarshall(line, beanClass));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * decodes UTF-8 straight out of memory mapped file,  without stream and decoder layers
+ * and their intermediate buffers.  File is mapped in windows,  so size is not limited
+ * by address space of single buffer.  Malformed input comes out as replacement character,
+ * like with default decoder.  Channel stays open
+ */
+final class MappedReader extends Reader {
+    /**
+     * size of mapped window
+     */
+    static final int WINDOW = 64 << 20;
+    private static final char REPLACEMENT = '\ufffd';
+
+    private final FileChannel channel;
+    private final long size;
+    private final int window;
+    private MappedByteBuffer buffer;
+    private long offset;
+    /**
+     * low surrogate of supplementary character not delivered yet
+     */
+    private char pending;
+
+    MappedReader(FileChannel channel) throws IOException {
+        this(channel, WINDOW);
+    }
+
+    MappedReader(FileChannel channel, int window) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.window = window;
+        map(channel.position());
+    }
+
+    private void map(long position) throws IOException {
+        offset = position;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, size - position));
+    }
+
+    /**
+     * make sure that at least given amount of bytes is available in window,  if file has them
+     *
+     * @return amount of bytes available
+     */
+    private int ensure(int bytes) throws IOException {
+        int remaining = buffer.remaining();
+        if (remaining < bytes) {
+            // window which reaches end of file has everything there is
+            if (offset + buffer.limit() < size) {
+                map(offset + buffer.position());
+                remaining = buffer.remaining();
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (buffer == null) {
+            throw new IOException("reader is closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (pending != 0) {
+            cbuf[off + count++] = pending;
+            pending = 0;
+        }
+        while (count < len) {
+            // ascii is most of JSON,  take it without further checks
+            final MappedByteBuffer buffer = this.buffer;
+            int position = buffer.position();
+            final int limit = position + Math.min(buffer.remaining(), len - count);
+            while (position < limit) {
+                final byte b = buffer.get(position);
+                if (b < 0) {
+                    break;
+                }
+                cbuf[off + count++] = (char) b;
+                position++;
+            }
+            buffer.position(position);
+            if (count == len) {
+                break;
+            }
+            // multibyte sequence may cross window border
+            if (ensure(4) == 0) {
+                break;
+            }
+            if (this.buffer.get(this.buffer.position()) < 0) {
+                count += decode(cbuf, off + count, len - count);
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * decode single multibyte sequence at current position
+     *
+     * @return amount of chars written
+     */
+    private int decode(char[] cbuf, int off, int len) {
+        final MappedByteBuffer buffer = this.buffer;
+        final int lead = buffer.get() & 0xff;
+        final int continuations;
+        int code;
+        if ((lead & 0xe0) == 0xc0) {
+            continuations = 1;
+            code = lead & 0x1f;
+        } else if ((lead & 0xf0) == 0xe0) {
+            continuations = 2;
+            code = lead & 0x0f;
+        } else if ((lead & 0xf8) == 0xf0) {
+            continuations = 3;
+            code = lead & 0x07;
+        } else {
+            cbuf[off] = REPLACEMENT;
+            return 1;
+        }
+        for (int i = 0; i < continuations; i++) {
+            if (!buffer.hasRemaining() || (buffer.get(buffer.position()) & 0xc0) != 0x80) {
+                // truncated sequence,  next byte is left to be decoded on its own
+                cbuf[off] = REPLACEMENT;
+                return 1;
+            }
+            code = code << 6 | buffer.get() & 0x3f;
+        }
+        if (continuations == 1 && code < 0x80 || continuations == 2 && (code < 0x800 || code >= 0xd800 && code < 0xe000)
+                || continuations == 3 && (code < 0x10000 || code > 0x10ffff)) {
+            // overlong,  surrogate or out of range
+            cbuf[off] = REPLACEMENT;
+            return 1;
+        }
+        if (code < 0x10000) {
+            cbuf[off] = (char) code;
+            return 1;
+        }
+        cbuf[off] = Character.highSurrogate(code);
+        if (len > 1) {
+            cbuf[off + 1] = Character.lowSurrogate(code);
+            return 2;
+        }
+        pending = Character.lowSurrogate(code);
+        return 1;
+    }
+
+    @Override
+    public void close() {
+        // channel belongs to caller,  mapping goes away with buffer
+        buffer = null;
+    }
+}
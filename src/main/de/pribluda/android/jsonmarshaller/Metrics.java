@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * holds installed metrics listener.  Both fields are constants for JIT,  so instrumentation
+ * guarded by {@link #enabled} is eliminated together with its arguments when there is no listener
+ */
+final class Metrics {
+    /**
+     * installed listener,  null if there is none
+     */
+    static final JSONMetrics listener = load();
+    static final boolean enabled = listener != null;
+
+    private Metrics() {
+    }
+
+    /**
+     * first implementation found wins
+     */
+    private static JSONMetrics load() {
+        try {
+            final Iterator<JSONMetrics> implementations = ServiceLoader.load(JSONMetrics.class, JSONMetrics.class.getClassLoader()).iterator();
+            if (implementations.hasNext()) {
+                return implementations.next();
+            }
+        } catch (ServiceConfigurationError e) {
+            // broken configuration shall not break marshalling,  go without metrics
+        }
+        return null;
+    }
+
+    /**
+     * report number which failed to parse.  Readers keep such value,  so it is pulled as string
+     *
+     * @return exception to be rethrown
+     */
+    static NumberFormatException failed(Class type, JSONInput reader, NumberFormatException e) throws IOException {
+        if (enabled) {
+            listener.conversionFailed(type, reader.nextString(), e);
+        }
+        return e;
+    }
+
+    /**
+     * report string which failed to parse as number
+     *
+     * @return exception to be rethrown
+     */
+    static NumberFormatException failed(Class type, String value, NumberFormatException e) {
+        if (enabled) {
+            listener.conversionFailed(type, value, e);
+        }
+        return e;
+    }
+
+    /**
+     * @return current time if metrics are enabled,  otherwise 0 without asking clock
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+}
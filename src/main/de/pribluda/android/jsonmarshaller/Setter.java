@@ -0,0 +1,660 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * single argument setter method of bean class.
+ * instances are immutable and shared between all unmarshalling runs of the class.
+ * Specialised subclasses are chosen once by declared parameter type and read scalar values
+ * straight from reader,  everything else goes through generic value conversion
+ */
+class Setter {
+    /**
+     * setter method itself
+     */
+    final Method method;
+    /**
+     * type of setter parameter
+     */
+    final Class type;
+    /**
+     * fast access to setter, built once.  Primitive setters bring their own access and get
+     * this one only if boxed value is ever set
+     */
+    private Accessors.WriteAccess access;
+    /**
+     * access to current value of object and array properties,  so it can be populated in place.
+     * null for scalar properties and properties without getter
+     */
+    private final Accessors.ReadAccess current;
+
+    Setter(Method method) {
+        this(method, Accessors.writer(method));
+    }
+
+    Setter(Method method, Accessors.WriteAccess access) {
+        this.method = method;
+        this.type = method.getParameterTypes()[0];
+        this.access = access;
+        this.current = isScalar(type) ? null : currentValueAccess(method);
+    }
+
+    static boolean isScalar(Class type) {
+        return type.isPrimitive() || String.class.equals(type) || Character.class.equals(type)
+                || Boolean.class.equals(type) || Number.class.isAssignableFrom(type);
+    }
+
+    /**
+     * find getter matching setter
+     *
+     * @return access to getter,  or null if there is none
+     */
+    private static Accessors.ReadAccess currentValueAccess(Method setter) {
+        final String property = setter.getName().substring(3);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                final Method getter = setter.getDeclaringClass().getMethod(prefix + property);
+                if (!Modifier.isStatic(getter.getModifiers()) && setter.getParameterTypes()[0].isAssignableFrom(getter.getReturnType())) {
+                    return Accessors.reader(getter);
+                }
+            } catch (NoSuchMethodException e) {
+                // try next prefix
+            }
+        }
+        return null;
+    }
+
+    /**
+     * create setter specialised for declared parameter type of method
+     *
+     * @param method
+     * @return
+     */
+    static Setter create(Method method) {
+        if (method.getParameterTypes()[0].isPrimitive()) {
+            final Setter primitive = createPrimitive(method, method.getParameterTypes()[0]);
+            if (primitive != null) {
+                return primitive;
+            }
+        }
+        final Class type = Accessors.wrap(method.getParameterTypes()[0]);
+        if (String.class.equals(type)) {
+            return new StringSetter(method);
+        } else if (Character.class.equals(type)) {
+            return new CharacterSetter(method);
+        } else if (Boolean.class.equals(type)) {
+            return new BooleanSetter(method);
+        } else if (Byte.class.equals(type) || Short.class.equals(type) || Integer.class.equals(type)
+                || Long.class.equals(type) || Float.class.equals(type) || Double.class.equals(type)) {
+            return new NumberSetter(method, type);
+        } else if (type.isEnum()) {
+            return new EnumSetter(method, type);
+        }
+        return new Setter(method);
+    }
+
+    /**
+     * setters reading primitive values from reader and passing them without boxing
+     *
+     * @return setter, or null if no primitive access can be created
+     */
+    private static Setter createPrimitive(Method method, Class type) {
+        if (Integer.TYPE.equals(type)) {
+            final Accessors.IntWriteAccess access = Accessors.lambda(Accessors.IntWriteAccess.class, method);
+            return access == null ? null : new IntSetter(method, access);
+        } else if (Long.TYPE.equals(type)) {
+            final Accessors.LongWriteAccess access = Accessors.lambda(Accessors.LongWriteAccess.class, method);
+            return access == null ? null : new LongSetter(method, access);
+        } else if (Double.TYPE.equals(type)) {
+            final Accessors.DoubleWriteAccess access = Accessors.lambda(Accessors.DoubleWriteAccess.class, method);
+            return access == null ? null : new DoubleSetter(method, access);
+        } else if (Float.TYPE.equals(type)) {
+            final Accessors.FloatWriteAccess access = Accessors.lambda(Accessors.FloatWriteAccess.class, method);
+            return access == null ? null : new FloatSetter(method, access);
+        } else if (Short.TYPE.equals(type)) {
+            final Accessors.ShortWriteAccess access = Accessors.lambda(Accessors.ShortWriteAccess.class, method);
+            return access == null ? null : new ShortSetter(method, access);
+        } else if (Byte.TYPE.equals(type)) {
+            final Accessors.ByteWriteAccess access = Accessors.lambda(Accessors.ByteWriteAccess.class, method);
+            return access == null ? null : new ByteSetter(method, access);
+        } else if (Boolean.TYPE.equals(type)) {
+            final Accessors.BooleanWriteAccess access = Accessors.lambda(Accessors.BooleanWriteAccess.class, method);
+            return access == null ? null : new PrimitiveBooleanSetter(method, access);
+        } else if (Character.TYPE.equals(type)) {
+            final Accessors.CharWriteAccess access = Accessors.lambda(Accessors.CharWriteAccess.class, method);
+            return access == null ? null : new PrimitiveCharSetter(method, access);
+        }
+        return null;
+    }
+
+    /**
+     * set property value on bean
+     *
+     * @param bean
+     * @param value
+     * @throws InvocationTargetException if setter has thrown something
+     * @throws IllegalAccessException
+     */
+    void set(Object bean, Object value) throws InvocationTargetException, IllegalAccessException {
+        Accessors.WriteAccess access = this.access;
+        if (access == null) {
+            // racing threads may both build it,  no harm
+            this.access = access = Accessors.writer(method);
+        }
+        try {
+            access.set(bean, value);
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * value was dropped,  as it can not be converted to parameter type
+     *
+     * @param value
+     */
+    void unconvertible(Object value) {
+        if (Metrics.enabled) {
+            Metrics.listener.conversionFailed(type, value, null);
+        }
+    }
+
+    /**
+     * read current value from reader and set it on bean.  Generic version pulls value
+     * and tries to convert it to parameter type,  values which can not be converted are ignored
+     *
+     * @param reader
+     * @param bean
+     */
+    void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+        Object v = JSONUnmarshaller.unmarshallProperty(reader, type);
+        if (v != null) {
+            set(bean, v);
+        }
+    }
+
+    /**
+     * read current value binding only projected properties of nested objects.  Projection
+     * has no meaning for scalars,  so generic conversion is used regardless of setter type
+     *
+     * @param reader
+     * @param bean
+     * @param projection property paths of nested value to be bound
+     */
+    void read(JSONInput reader, Object bean, JSONProjection projection) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+        Object v = JSONUnmarshaller.unmarshallProperty(reader, type, projection);
+        if (v != null) {
+            set(bean, v);
+        }
+    }
+
+    /**
+     * read current value into bean,  populating object or array already present in property
+     * instead of replacing it.  Scalars are just read
+     *
+     * @param reader
+     * @param bean
+     * @param projection property paths of nested value to be bound,  null binds everything
+     */
+    void readInto(JSONInput reader, Object bean, JSONProjection projection) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+        if (current == null) {
+            if (projection == null) {
+                read(reader, bean);
+            } else {
+                read(reader, bean, projection);
+            }
+            return;
+        }
+        final Object existing;
+        try {
+            existing = current.get(bean);
+        } catch (IllegalAccessException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+        final Object v = JSONUnmarshaller.unmarshallPropertyInto(reader, type, existing, projection);
+        if (v != null && v != existing) {
+            set(bean, v);
+        }
+    }
+
+    static final class StringSetter extends Setter {
+        StringSetter(Method method) {
+            super(method);
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    set(bean, JSONUnmarshaller.nextString(reader));
+                    break;
+                case BOOLEAN:
+                    // booleans are not converted to strings
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class EnumSetter extends Setter {
+        private final EnumTable constants;
+
+        EnumSetter(Method method, Class type) {
+            super(method);
+            constants = EnumTable.of(type);
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    // names as well as ordinals
+                    final String text = reader.nextString();
+                    final Enum constant = constants.get(text);
+                    if (constant != null) {
+                        set(bean, constant);
+                    } else {
+                        unconvertible(text);
+                    }
+                    break;
+                case BOOLEAN:
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class CharacterSetter extends Setter {
+        CharacterSetter(Method method) {
+            super(method);
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String value = reader.nextString();
+                    if (value.length() > 0) {
+                        set(bean, value.charAt(0));
+                    }
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class BooleanSetter extends Setter {
+        BooleanSetter(Method method) {
+            super(method);
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case BOOLEAN:
+                    set(bean, reader.nextBoolean());
+                    break;
+                case STRING:
+                case NUMBER:
+                    set(bean, Boolean.valueOf(reader.nextString()));
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class NumberSetter extends Setter {
+        /**
+         * wrapper class of number
+         */
+        private final Class wrapper;
+
+        NumberSetter(Method method, Class wrapper) {
+            super(method);
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String raw = reader.nextString();
+                    final Object value;
+                    try {
+                        value = parse(raw);
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, raw, e);
+                    }
+                    set(bean, value);
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+
+        private Object parse(String value) {
+            if (Integer.class == wrapper) {
+                return Integer.parseInt(value);
+            } else if (Long.class == wrapper) {
+                return Long.parseLong(value);
+            } else if (Double.class == wrapper) {
+                return Double.parseDouble(value);
+            } else if (Float.class == wrapper) {
+                return Float.parseFloat(value);
+            } else if (Short.class == wrapper) {
+                return Short.parseShort(value);
+            }
+            return Byte.parseByte(value);
+        }
+    }
+
+    static final class IntSetter extends Setter {
+        private final Accessors.IntWriteAccess primitive;
+
+        IntSetter(Method method, Accessors.IntWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final int value;
+                    try {
+                        value = reader.nextInt();
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, reader, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class LongSetter extends Setter {
+        private final Accessors.LongWriteAccess primitive;
+
+        LongSetter(Method method, Accessors.LongWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final long value;
+                    try {
+                        value = reader.nextLong();
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, reader, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class DoubleSetter extends Setter {
+        private final Accessors.DoubleWriteAccess primitive;
+
+        DoubleSetter(Method method, Accessors.DoubleWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final double value;
+                    try {
+                        value = reader.nextDouble();
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, reader, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class FloatSetter extends Setter {
+        private final Accessors.FloatWriteAccess primitive;
+
+        FloatSetter(Method method, Accessors.FloatWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String raw = reader.nextString();
+                    final float value;
+                    try {
+                        value = Float.parseFloat(raw);
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, raw, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class ShortSetter extends Setter {
+        private final Accessors.ShortWriteAccess primitive;
+
+        ShortSetter(Method method, Accessors.ShortWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String raw = reader.nextString();
+                    final short value;
+                    try {
+                        value = Short.parseShort(raw);
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, raw, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class ByteSetter extends Setter {
+        private final Accessors.ByteWriteAccess primitive;
+
+        ByteSetter(Method method, Accessors.ByteWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String raw = reader.nextString();
+                    final byte value;
+                    try {
+                        value = Byte.parseByte(raw);
+                    } catch (NumberFormatException e) {
+                        throw Metrics.failed(type, raw, e);
+                    }
+                    try {
+                        primitive.set(bean, value);
+                    } catch (Throwable e) {
+                        throw new InvocationTargetException(e);
+                    }
+                    break;
+                case BOOLEAN:
+                    // booleans are not numbers
+                    unconvertible(reader.nextBoolean());
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+
+    static final class PrimitiveBooleanSetter extends Setter {
+        private final Accessors.BooleanWriteAccess primitive;
+
+        PrimitiveBooleanSetter(Method method, Accessors.BooleanWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            final boolean value;
+            switch (reader.peek()) {
+                case BOOLEAN:
+                    value = reader.nextBoolean();
+                    break;
+                case STRING:
+                case NUMBER:
+                    value = Boolean.parseBoolean(reader.nextString());
+                    break;
+                default:
+                    super.read(reader, bean);
+                    return;
+            }
+            try {
+                primitive.set(bean, value);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+    }
+
+    static final class PrimitiveCharSetter extends Setter {
+        private final Accessors.CharWriteAccess primitive;
+
+        PrimitiveCharSetter(Method method, Accessors.CharWriteAccess primitive) {
+            super(method, null);
+            this.primitive = primitive;
+        }
+
+        @Override
+        void read(JSONInput reader, Object bean) throws IOException, InvocationTargetException, IllegalAccessException, InstantiationException, NoSuchMethodException {
+            switch (reader.peek()) {
+                case STRING:
+                case NUMBER:
+                    final String value = reader.nextString();
+                    if (value.length() > 0) {
+                        try {
+                            primitive.set(bean, value.charAt(0));
+                        } catch (Throwable e) {
+                            throw new InvocationTargetException(e);
+                        }
+                    }
+                    break;
+                default:
+                    super.read(reader, bean);
+            }
+        }
+    }
+}
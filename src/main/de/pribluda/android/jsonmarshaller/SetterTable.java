@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+/**
+ * maps JSON property names to setters of single class.  JSON name <code>foo</code> addresses
+ * setter <code>setFoo</code>  (first character is capitalised), and this is done on the fly
+ * while hashing and comparing, so lookup allocates nothing.  Open addressing with
+ * linear probing,  table is immutable after construction
+ */
+final class SetterTable {
+    /**
+     * setter names without prefix,  as JSON name would look like after capitalisation
+     */
+    private final String[] names;
+    private final Setter[] setters;
+    private final int mask;
+    /**
+     * number of setters in table
+     */
+    final int size;
+
+    /**
+     * build table.  if there are several setters of the same name, first one wins
+     *
+     * @param setters setter candidates
+     * @param prefixLength length of setter prefix to be cut off method names
+     */
+    SetterTable(Setter[] setters, int prefixLength) {
+        int capacity = 2;
+        while (capacity < setters.length * 2) {
+            capacity <<= 1;
+        }
+        this.names = new String[capacity];
+        this.setters = new Setter[capacity];
+        this.mask = capacity - 1;
+
+        int size = 0;
+        for (Setter setter : setters) {
+            final String name = setter.method.getName().substring(prefixLength);
+            // no JSON name can be capitalised to this one
+            if (name.length() == 0 || Character.toUpperCase(name.charAt(0)) != name.charAt(0)) {
+                continue;
+            }
+            int index = hash(name) & mask;
+            while (this.names[index] != null && !this.names[index].equals(name)) {
+                index = (index + 1) & mask;
+            }
+            if (this.names[index] == null) {
+                this.names[index] = name;
+                this.setters[index] = setter;
+                size++;
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return setters in table,  in no particular order
+     */
+    Setter[] setters() {
+        final Setter[] result = new Setter[size];
+        int count = 0;
+        for (Setter setter : setters) {
+            if (setter != null) {
+                result[count++] = setter;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * find setter for JSON property name
+     *
+     * @param key JSON property name
+     * @return setter or null if there is none
+     */
+    Setter get(String key) {
+        if (key.length() == 0) {
+            return null;
+        }
+        int index = hash(key) & mask;
+        String name;
+        while ((name = names[index]) != null) {
+            if (matches(key, name)) {
+                return setters[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * string hash of name with first character capitalised
+     */
+    private static int hash(String key) {
+        int h = Character.toUpperCase(key.charAt(0));
+        for (int i = 1; i < key.length(); i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        // spread bits, as only lower ones are used
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String key, String name) {
+        return key.length() == name.length()
+                && Character.toUpperCase(key.charAt(0)) == name.charAt(0)
+                && key.regionMatches(1, name, 1, name.length() - 1);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package de.pribluda.android.jsonmarshaller;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * test class caches,  both backed by class values and by copied tables as used on older android
+ */
+public class ClassCacheTest {
+
+    private static final Class[] CLASSES = {String.class, Integer.class, Long.class, Double.class, Float.class,
+            Short.class, Byte.class, Boolean.class, Character.class, Object.class, Number.class, List.class,
+            ArrayList.class, Thread.class, Runnable.class, Callable.class, Future.class, ClassCacheTest.class};
+
+    @Test
+    public void testThatClassValuesAreUsedWhereAvailable() {
+        assertTrue(ClassCache.CLASS_VALUE);
+    }
+
+    /**
+     * every class is computed once,  absent values are remembered as well
+     */
+    @Test
+    public void testThatValuesAreComputedOnce() {
+        for (boolean classValue : new boolean[]{true, false}) {
+            final AtomicInteger computed = new AtomicInteger();
+            final ClassCache<String> cache = new ClassCache<String>(type -> {
+                computed.incrementAndGet();
+                return type == Object.class ? null : type.getSimpleName();
+            }, classValue);
+
+            for (int round = 0; round < 3; round++) {
+                for (Class type : CLASSES) {
+                    assertEquals(type == Object.class ? null : type.getSimpleName(), cache.get(type));
+                }
+            }
+            assertEquals(CLASSES.length, computed.get());
+        }
+    }
+
+    /**
+     * concurrent lookups see one value per class
+     */
+    @Test
+    public void testThatConcurrentLookupsAgree() throws Exception {
+        final ClassCache<Object> cache = new ClassCache<Object>(type -> new Object(), false);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Object[]>> results = new ArrayList<Future<Object[]>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    final Object[] values = new Object[CLASSES.length];
+                    for (int j = 0; j < CLASSES.length; j++) {
+                        values[j] = cache.get(CLASSES[j]);
+                    }
+                    return values;
+                }));
+            }
+            for (Future<Object[]> result : results) {
+                final Object[] values = result.get();
+                for (int j = 0; j < CLASSES.length; j++) {
+                    assertSame(cache.get(CLASSES[j]), values[j]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * enums are written as names or ordinals and read back from either
+ */
+public class EnumMarshallingTest {
+
+    private static String marshall(Object bean) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(out);
+        JSONMarshaller.marshall(writer, bean);
+        writer.flush();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testThatEnumsAreWrittenByName() throws Exception {
+        final Order order = new Order();
+        order.setStatus(Status.SHIPPED);
+        order.setPriority(Priority.HIGH);
+        order.setHistory(new Status[]{Status.OPEN, Status.SHIPPED});
+
+        final String json = marshall(order);
+
+        assertTrue(json, json.contains("\"Status\":\"SHIPPED\""));
+        assertTrue(json, json.contains("\"History\":[\"OPEN\",\"SHIPPED\"]"));
+    }
+
+    @Test
+    public void testThatOrdinalEnumsAreWrittenAsNumbers() throws Exception {
+        final Order order = new Order();
+        order.setPriority(Priority.HIGH);
+
+        assertTrue(marshall(order).contains("\"Priority\":2"));
+    }
+
+    /**
+     * constant with own body is subclass of its enum
+     */
+    @Test
+    public void testThatConstantWithBodyIsWritten() throws Exception {
+        final Order order = new Order();
+        order.setStatus(Status.CANCELLED);
+
+        assertTrue(marshall(order).contains("\"Status\":\"CANCELLED\""));
+    }
+
+    @Test
+    public void testThatEnumsAreRoundTripped() throws Exception {
+        final Order order = new Order();
+        order.setStatus(Status.CANCELLED);
+        order.setPriority(Priority.LOW);
+        order.setHistory(new Status[]{Status.OPEN, Status.CANCELLED});
+        final String json = marshall(order);
+
+        final Order bytes = JSONUnmarshaller.unmarshall(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Order.class);
+        final Order gson = JSONUnmarshaller.unmarshall(new JsonReader(new StringReader(json)), Order.class);
+
+        for (Order restored : new Order[]{bytes, gson}) {
+            assertSame(Status.CANCELLED, restored.getStatus());
+            assertSame(Priority.LOW, restored.getPriority());
+            assertArrayEquals(new Status[]{Status.OPEN, Status.CANCELLED}, restored.getHistory());
+        }
+    }
+
+    /**
+     * names and ordinals are accepted regardless of encoding,  unknown values are dropped
+     */
+    @Test
+    public void testThatNamesAndOrdinalsAreAccepted() throws Exception {
+        final Order order = JSONUnmarshaller.unmarshall("{\"Status\": 1, \"Priority\": \"HIGH\", \"History\": [\"OPEN\", \"UNKNOWN\", \"7\", \"-1\", 2]}", Order.class);
+
+        assertSame(Status.SHIPPED, order.getStatus());
+        assertSame(Priority.HIGH, order.getPriority());
+        assertArrayEquals(new Status[]{Status.OPEN, Status.CANCELLED}, order.getHistory());
+    }
+
+    @Test
+    public void testThatUnknownConstantIsDropped() throws Exception {
+        final Order order = JSONUnmarshaller.unmarshall("{\"Status\": \"shipped\"}", Order.class);
+
+        assertNull(order.getStatus());
+    }
+
+    @Test
+    public void testThatEnumTableIsPrepared() {
+        JSONIntrospection.prepare(Order.class);
+
+        assertFalse(EnumTable.of(Status.class).ordinal);
+        assertTrue(EnumTable.of(Priority.class).ordinal);
+    }
+
+    public enum Status {
+        OPEN,
+        SHIPPED,
+        CANCELLED {
+            @Override
+            public String toString() {
+                return "cancelled";
+            }
+        }
+    }
+
+    @JSONOrdinal
+    public enum Priority {
+        LOW,
+        NORMAL,
+        HIGH
+    }
+
+    public static class Order {
+        private Status status;
+        private Priority priority;
+        private Status[] history;
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        public void setPriority(Priority priority) {
+            this.priority = priority;
+        }
+
+        public Status[] getHistory() {
+            return history;
+        }
+
+        public void setHistory(Status[] history) {
+            this.history = history;
+        }
+    }
+}
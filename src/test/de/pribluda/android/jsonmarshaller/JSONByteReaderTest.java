@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * byte parser shall deliver exactly the tokens gson reader delivers
+ */
+public class JSONByteReaderTest {
+
+    static final String DOCUMENT = "{\"plain\": \"value\", \"escaped\": \"q\\\"b\\\\s\\/t\\t\\n\\u0041\\u00e4\",\n"
+            + "        \"utf\": \"\u00e4\u00df\u20ac\ud83d\ude00 long enough to be scanned by words\",\n"
+            + "        \"numbers\": [0, -1, 42, -0.5, 1e10, 2.5E-3, 123456789012345678901, 9223372036854775807],\n"
+            + "        \"literals\": [true, false, null],\n"
+            + "        \"nested\": {\"empty\": {}, \"none\": [], \"deep\": [[[\"x\"]]]},\n"
+            + "        \"\u00fcber\": \"\"}";
+
+    /**
+     * token stream and values shall match gson
+     */
+    @Test
+    public void testThatTokensMatchGson() throws IOException {
+        final List<String> expected = tokens(new GsonInput(new JsonReader(new StringReader(DOCUMENT))));
+        final byte[] bytes = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expected, tokens(new JSONByteReader(bytes)));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+        direct.put((byte) ' ').put(bytes).flip().position(1);
+        assertEquals(expected, tokens(new JSONByteReader(direct)));
+        assertEquals(1, direct.position());
+    }
+
+    /**
+     * numbers shall be converted like by gson
+     */
+    @Test
+    public void testNumberConversion() throws IOException {
+        final JSONByteReader reader = new JSONByteReader("[12, \"34\", 1.0, 1.5, 3000000000, -9223372036854775808]".getBytes(StandardCharsets.UTF_8));
+        reader.beginArray();
+        assertEquals(12, reader.nextInt());
+        assertEquals(34, reader.nextInt());
+        assertEquals(1, reader.nextInt());
+        try {
+            reader.nextInt();
+            fail("fraction is not int");
+        } catch (NumberFormatException e) {
+            // anticipated,  value stays there
+        }
+        assertEquals(1.5, reader.nextDouble(), 0);
+        try {
+            reader.nextInt();
+            fail("does not fit into int");
+        } catch (NumberFormatException e) {
+            // anticipated
+        }
+        assertEquals(3000000000L, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        reader.endArray();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    /**
+     * nested values shall be skipped as whole,  brackets in strings do not count
+     */
+    @Test
+    public void testThatNestedValuesAreSkipped() throws IOException {
+        final JSONByteReader reader = new JSONByteReader("{\"skip\": {\"a\": [\"]}\\\"\", {\"b\": 1}]}, \"keep\": 2}".getBytes(StandardCharsets.UTF_8));
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(2, reader.nextInt());
+        reader.endObject();
+    }
+
+    /**
+     * malformed documents shall be rejected
+     */
+    @Test
+    public void testThatMalformedJsonIsRejected() throws IOException {
+        for (String json : new String[]{"{\"a\": tru}", "[1,]", "[01]", "[1.]", "{a: 1}", "[\"unterminated]", "\"string\"", "[1] [2]", "{\"a\" 1}"}) {
+            final JSONByteReader reader = new JSONByteReader(json.getBytes(StandardCharsets.UTF_8));
+            try {
+                tokens(reader);
+                fail("shall be rejected: " + json);
+            } catch (IOException e) {
+                // anticipated
+            }
+        }
+        try {
+            new JSONByteReader(new byte[0]).peek();
+            fail("empty input is no document");
+        } catch (EOFException e) {
+            // anticipated
+        }
+    }
+
+    /**
+     * beans shall be unmarshalled out of bytes
+     */
+    @Test
+    public void testThatBeanIsUnmarshalledFromBytes() throws IOException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final JSONByteReader reader = new JSONByteReader("[{\"String\": \"gr\u00fc\u00df\", \"Ints\": [1, 2], \"Nested\": {\"String\": \"inner\"}, \"Unknown\": {\"x\": [1]}}]".getBytes(StandardCharsets.UTF_8));
+
+        final List<Bean> beans = JSONUnmarshaller.unmarshallArray(reader, Bean.class);
+
+        assertEquals(1, beans.size());
+        assertEquals("gr\u00fc\u00df", beans.get(0).getString());
+        assertArrayEquals(new int[]{1, 2}, beans.get(0).getInts());
+        assertEquals("inner", beans.get(0).getNested().getString());
+        assertFalse(reader.hasNext() && reader.peek() != JsonToken.END_DOCUMENT);
+    }
+
+    /**
+     * walk document collecting tokens with their values
+     */
+    private static List<String> tokens(JSONInput reader) throws IOException {
+        final List<String> tokens = new ArrayList<String>();
+        for (JsonToken token = reader.peek(); token != JsonToken.END_DOCUMENT; token = reader.peek()) {
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    tokens.add("[");
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    tokens.add("]");
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    tokens.add("{");
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    tokens.add("}");
+                    break;
+                case NAME:
+                    tokens.add("name " + reader.nextName());
+                    break;
+                case STRING:
+                    tokens.add("string " + reader.nextString());
+                    break;
+                case NUMBER:
+                    tokens.add("number " + reader.nextString());
+                    break;
+                case BOOLEAN:
+                    tokens.add("boolean " + reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    tokens.add("null");
+                    break;
+                default:
+                    fail("unexpected " + token);
+            }
+        }
+        return tokens;
+    }
+
+    public static class Bean {
+        private String string;
+        private int[] ints;
+        private Bean nested;
+
+        public String getString() {
+            return string;
+        }
+
+        public void setString(String string) {
+            this.string = string;
+        }
+
+        public int[] getInts() {
+            return ints;
+        }
+
+        public void setInts(int[] ints) {
+            this.ints = ints;
+        }
+
+        public Bean getNested() {
+            return nested;
+        }
+
+        public void setNested(Bean nested) {
+            this.nested = nested;
+        }
+    }
+}
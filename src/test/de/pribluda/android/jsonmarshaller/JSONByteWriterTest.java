@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * byte writer shall produce exactly what gson writer produces,  only already encoded
+ */
+public class JSONByteWriterTest {
+
+    static final String TRICKY = "plain \"quoted\" back\\slash \t\b\n\r\f \u0001 \u001f </script> \u00e4\u00df \u20ac \u2028 \u2029 \ud83d\ude00 \ud800 end";
+
+    /**
+     * escaping and encoding shall match gson on utf-8 writer,  also when buffer drains in the middle
+     */
+    @Test
+    public void testThatOutputMatchesGson() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final Bean bean = new Bean();
+        for (int size : new int[]{64, 100, JSONByteWriter.BUFFER_SIZE}) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final JSONByteWriter writer = new JSONByteWriter(size);
+            writer.reset(bytes);
+            JSONMarshaller.marshall(writer, bean);
+            writer.flush();
+
+            assertEquals(gson(bean), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * pre-encoded names shall come out like plain ones,  escaped and separated
+     */
+    @Test
+    public void testThatEncodedNamesAreCopied() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(bytes);
+        writer.beginObject();
+        writer.name(JSONName.of("first"));
+        writer.value(1);
+        writer.name("plain");
+        writer.beginArray();
+        writer.endArray();
+        writer.name(JSONName.of(TRICKY));
+        writer.nullValue();
+        writer.endObject();
+        writer.flush();
+
+        final StringWriter expected = new StringWriter();
+        final JsonWriter gson = new JsonWriter(expected);
+        gson.beginObject();
+        gson.name("first");
+        gson.value(1);
+        gson.name("plain");
+        gson.beginArray();
+        gson.endArray();
+        gson.name(TRICKY);
+        gson.nullValue();
+        gson.endObject();
+        gson.flush();
+
+        assertEquals(new String(expected.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * encoded name longer than buffer shall pass by it
+     */
+    @Test
+    public void testThatLongEncodedNameIsWritten() throws IOException {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            name.append((char) ('a' + i % 26));
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(64);
+        writer.reset(bytes);
+        writer.beginObject();
+        writer.name(JSONName.of("short"));
+        writer.value(1);
+        writer.name(JSONName.of(name.toString()));
+        writer.value(2);
+        writer.endObject();
+        writer.flush();
+
+        assertEquals("{\"short\":1,\"" + name + "\":2}", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * writer shall be reusable for further documents and fill NIO buffers
+     */
+    @Test
+    public void testThatWriterIsReusedForByteBuffers() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final JSONByteWriter writer = new JSONByteWriter(ByteBuffer.allocate(0));
+        for (int i = 0; i < 3; i++) {
+            final ByteBuffer target = ByteBuffer.allocateDirect(1024);
+            writer.reset(target);
+            JSONMarshaller.marshallArray(writer, new long[]{i, -i, Long.MIN_VALUE, Long.MAX_VALUE});
+            writer.flush();
+            target.flip();
+            assertEquals("[" + i + "," + -i + ",-9223372036854775808,9223372036854775807]", StandardCharsets.UTF_8.decode(target).toString());
+        }
+    }
+
+    /**
+     * structure shall be checked like by gson
+     */
+    @Test
+    public void testThatBrokenStructureIsRejected() throws IOException {
+        final JSONByteWriter writer = new JSONByteWriter(new ByteArrayOutputStream());
+        try {
+            writer.value("top level string");
+            fail("top level value must be object or array");
+        } catch (IllegalStateException e) {
+            // anticipated
+        }
+        writer.beginObject();
+        try {
+            writer.value(1);
+            fail("object needs name before value");
+        } catch (IllegalStateException e) {
+            // anticipated
+        }
+        try {
+            writer.endArray();
+            fail("object can not be ended as array");
+        } catch (IllegalStateException e) {
+            // anticipated
+        }
+        try {
+            writer.close();
+            fail("incomplete document shall not be closed silently");
+        } catch (IOException e) {
+            // anticipated
+        }
+    }
+
+    private static String gson(Object bean) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final StringWriter out = new StringWriter();
+        final JsonWriter writer = new JsonWriter(out);
+        JSONMarshaller.marshall(writer, bean);
+        writer.flush();
+        // unpaired surrogate can not be encoded and is replaced
+        return new String(out.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    public static class Bean {
+        public String getTricky() {
+            return TRICKY;
+        }
+
+        public String getNothing() {
+            return null;
+        }
+
+        public long getNegative() {
+            return -1234567890123L;
+        }
+
+        public int getZero() {
+            return 0;
+        }
+
+        public double getDouble() {
+            return -0.000123;
+        }
+
+        public Float getFloat() {
+            return 0.1f;
+        }
+
+        public boolean isTrue() {
+            return true;
+        }
+
+        public char getChar() {
+            return '"';
+        }
+
+        public float[] getFloats() {
+            return new float[]{1.5f, 0.3f};
+        }
+
+        public String[][] getStrings() {
+            return new String[][]{{"a", null}, {}, {TRICKY}};
+        }
+
+        public Nested getNested() {
+            return new Nested();
+        }
+    }
+
+    public static class Nested {
+        public Boolean getEmpty() {
+            return null;
+        }
+
+        public int[] getInts() {
+            return new int[]{Integer.MIN_VALUE, 7};
+        }
+    }
+}
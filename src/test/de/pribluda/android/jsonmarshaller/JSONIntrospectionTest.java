@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * test prewarming and introspection snapshots.  Cache misses are observed through {@link RecordingMetrics}
+ */
+public class JSONIntrospectionTest {
+
+    /**
+     * whole graph is introspected,  so marshalling and unmarshalling do not miss caches any more
+     */
+    @Test
+    public void testThatBeanGraphIsPrepared() throws Exception {
+        JSONIntrospection.prepare(Root.class);
+
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Root.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.SETTERS, Root.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Leaf.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.SETTERS, Leaf.class));
+
+        final Root root = JSONUnmarshaller.unmarshall("{\"Leaves\": [{\"Name\": \"a\"}], \"Name\": \"root\"}", Root.class);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JSONMarshaller.marshall(new JSONByteWriter(out), root);
+
+        assertEquals("a", root.getLeaves()[0].getName());
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Leaf.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.SETTERS, Leaf.class));
+    }
+
+    @Test
+    public void testThatPreparationRunsOnExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            JSONIntrospection.prepare(executor, Background.class).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Background.class));
+    }
+
+    /**
+     * saved snapshot names all beans of graph
+     */
+    @Test
+    public void testThatSnapshotIsSaved() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, JSONIntrospection.save(out, "1.0", Root.class));
+
+        final String snapshot = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(snapshot.contains(Root.class.getName()));
+        assertTrue(snapshot.contains(Leaf.class.getName()));
+        assertTrue(snapshot.contains("setLeaves"));
+    }
+
+    /**
+     * recorded methods are used instead of introspection,  so property left out of
+     * snapshot is not seen
+     */
+    @Test
+    public void testThatSnapshotIsLoaded() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x4a534e50);
+        data.writeByte(3);
+        data.writeUTF("1.0");
+        data.writeInt(2);
+        data.writeUTF(Restored.class.getName());
+        data.writeShort(1);
+        data.writeUTF("getNumber");
+        data.writeShort(1);
+        data.writeUTF("setNumber");
+        data.writeUTF("int");
+        // stale entry is skipped
+        data.writeUTF(Restored.class.getName() + "Gone");
+        data.writeShort(0);
+        data.writeShort(0);
+
+        assertEquals(1, JSONIntrospection.load(new ByteArrayInputStream(out.toByteArray()), "1.0"));
+
+        final Restored restored = JSONUnmarshaller.unmarshall("{\"Number\": 1, \"Name\": \"ignored\"}", Restored.class);
+        assertEquals(1, restored.getNumber());
+        assertNull(restored.getName());
+
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(json);
+        restored.setName("hidden");
+        JSONMarshaller.marshall(writer, restored);
+        writer.flush();
+        assertEquals("{\"Number\":1}", new String(json.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(JSONIntrospection.restoredGetters.isEmpty());
+    }
+
+    /**
+     * snapshot taken by previous build,  before property was added,  is rejected by its header.
+     * Entries are not even read,  so classes are neither resolved nor their methods listed
+     */
+    @Test
+    public void testThatSnapshotOfOtherBuildIsIgnored() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(0x4a534e50);
+        data.writeByte(3);
+        data.writeUTF("1.0");
+        data.writeInt(1);
+        data.writeUTF(Grown.class.getName());
+        data.writeShort(1);
+        data.writeUTF("getNumber");
+        data.writeShort(1);
+        data.writeUTF("setNumber");
+        data.writeUTF("int");
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+        assertEquals(0, JSONIntrospection.load(in, "1.1"));
+        // class entry is left unread
+        assertTrue(in.available() > 0);
+
+        final Grown grown = JSONUnmarshaller.unmarshall("{\"Number\": 1, \"Name\": \"seen\"}", Grown.class);
+        assertEquals(1, grown.getNumber());
+        assertEquals("seen", grown.getName());
+
+        final ByteArrayOutputStream json = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(json);
+        JSONMarshaller.marshall(writer, grown);
+        writer.flush();
+        final String marshalled = new String(json.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(marshalled.contains("\"Name\":\"seen\""));
+        assertTrue(marshalled.contains("\"Number\":1"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testThatForeignDataIsRejected() throws IOException {
+        JSONIntrospection.load(new ByteArrayInputStream("{\"not\": \"snapshot\"}".getBytes(StandardCharsets.UTF_8)), "1.0");
+    }
+
+    public static class Root {
+        private String name;
+        private Leaf[] leaves;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Leaf[] getLeaves() {
+            return leaves;
+        }
+
+        public void setLeaves(Leaf[] leaves) {
+            this.leaves = leaves;
+        }
+    }
+
+    public static class Leaf {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Background {
+        private int number;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+    }
+
+    public static class Restored {
+        private int number;
+        private String name;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Grown {
+        private int number;
+        private String name;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
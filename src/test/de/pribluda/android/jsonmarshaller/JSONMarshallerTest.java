@@ -4,13 +4,18 @@ package de.pribluda.android.jsonmarshaller;
 import com.google.gson.stream.JsonWriter;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.stream.Stream;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import static org.junit.Assert.fail;
+import static org.junit.Assert.assertFalse;
 
 /**
  * test proper functionality of json marshalling
@@ -19,6 +24,14 @@ public class JSONMarshallerTest {
     @Mocked
     JsonWriter writer;
 
+    /**
+     * without listener on classpath metrics stay off,  so this suite runs production code paths
+     */
+    @Test
+    public void testThatMetricsAreOffByDefault() {
+        assertFalse(Metrics.enabled);
+    }
+
     /**
      * test that getter name is properly converted to property name
      */
@@ -39,6 +52,39 @@ public class JSONMarshallerTest {
         new JSONMarshaller().marshall(writer, new BadGeters());
     }
 
+    /**
+     * only eligible getters shall make it into cached class descriptor
+     */
+    @Test
+    public void testThatOnlyEligibleGettersAreDescribed() {
+        assertEquals(0, JSONMarshaller.getters(BadGeters.class).length);
+
+        final Getter[] getters = JSONMarshaller.getters(WithPrimitiveBoolean.class);
+        assertEquals(1, getters.length);
+        assertEquals("Bool", getters[0].name);
+        // descriptor is computed once and reused
+        assertSame(getters, JSONMarshaller.getters(WithPrimitiveBoolean.class));
+    }
+
+    /**
+     * exception thrown by getter shall come out wrapped,  like with reflective invocation
+     */
+    @Test
+    public void testThatGetterExceptionIsWrapped() throws Exception {
+        try {
+            JSONMarshaller.marshall(writer, new ThrowingGetter());
+            fail("getter exception must be propagated");
+        } catch (InvocationTargetException e) {
+            assertEquals("glum", e.getCause().getMessage());
+        }
+    }
+
+    public static class ThrowingGetter {
+        public String getBlam() {
+            throw new IllegalStateException("glum");
+        }
+    }
+
     /**
      * inner class hosting getters which shall not acceptable
      */
@@ -202,9 +248,9 @@ public class JSONMarshallerTest {
 
                 writer.beginArray();
 
-                writer.value((Number) 1);
-                writer.value((Number) 2);
-                writer.value((Number) 3);
+                writer.value(1L);
+                writer.value(2L);
+                writer.value(3L);
 
                 writer.endArray();
             }
@@ -249,15 +295,15 @@ public class JSONMarshallerTest {
 
                 writer.beginArray();
                 writer.beginArray();
-                writer.value((Number) 1);
-                writer.value((Number) 2);
-                writer.value((Number) 3);
+                writer.value(1L);
+                writer.value(2L);
+                writer.value(3L);
                 writer.endArray();
 
                 writer.beginArray();
-                writer.value((Number) 4);
-                writer.value((Number) 5);
-                writer.value((Number) 6);
+                writer.value(4L);
+                writer.value(5L);
+                writer.value(6L);
                 writer.endArray();
 
                 writer.endArray();
@@ -325,9 +371,9 @@ public class JSONMarshallerTest {
                 writer.beginObject();
                 writer.name("IntArray");
                 writer.beginArray();
-                writer.value((Number) 1);
-                writer.value((Number) 2);
-                writer.value((Number) 3);
+                writer.value(1L);
+                writer.value(2L);
+                writer.value(3L);
                 writer.endArray();
                 writer.endObject();
 
@@ -461,4 +507,153 @@ public class JSONMarshallerTest {
             return 'x';
         }
     }
+
+    /**
+     * wrapped number property shall come out as number,  and null as null
+     */
+    @Test
+    public void testNumberObjectIsMarshalledProperly() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        new Expectations() {
+            {
+                writer.beginObject();
+                writer.name("Number");
+                writer.value((Number) 239L);
+                writer.endObject();
+            }};
+        JSONMarshaller.marshall(writer, new WithNumberObject());
+    }
+
+    public static class WithNumberObject {
+
+        public Long getNumber() {
+            return 239L;
+        }
+    }
+
+    /**
+     * generated codec shall be used instead of introspection if present
+     */
+    @Test
+    public void testThatGeneratedCodecIsUsed() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        new Expectations() {
+            {
+                writer.beginObject();
+                writer.name("codec");
+                writer.value(true);
+                writer.endObject();
+            }};
+        JSONMarshaller.marshall(writer, new WithCodec());
+    }
+
+    public static class WithCodec {
+        public String getFoo() {
+            fail("introspected getter called");
+            return "foo";
+        }
+
+        /**
+         * stands for generated code,  binary name is WithCodec$$JSONCodec
+         */
+        public static class $JSONCodec implements JSONCodec<WithCodec> {
+            public WithCodec newInstance() {
+                return new WithCodec();
+            }
+
+            public int marshallProperties(JSONOutput writer, WithCodec bean) throws IOException {
+                writer.name("codec");
+                writer.value(true);
+                return 1;
+            }
+
+            public boolean unmarshallProperty(JSONInput reader, String name, WithCodec bean) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * primitive arrays shall be written directly,  float keeps its precision
+     */
+    @Test
+    public void testThatPrimitiveArraysAreMarshalledDirectly() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        JSONMarshaller.marshallArray(writer, new float[]{0.1f});
+        JSONMarshaller.marshallArray(writer, new double[]{0.5});
+        JSONMarshaller.marshallArray(writer, new char[]{'x'});
+        JSONMarshaller.marshallArray(writer, new boolean[]{true});
+
+        new Verifications() {
+            {
+                Number number;
+                writer.value(number = withCapture());
+                assertEquals("0.1", number.toString());
+                writer.value(0.5);
+                writer.value("x");
+                writer.value(true);
+            }
+        };
+    }
+
+    /**
+     * primitive numbers shall be written as such,  without boxing
+     */
+    @Test
+    public void testPrimitiveNumbersAreWrittenDirectly() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        new Expectations() {
+            {
+                writer.beginObject();
+                writer.name("Int");
+                writer.value(239L);
+                writer.endObject();
+            }};
+        JSONMarshaller.marshall(writer, new WithPrimitiveInt());
+    }
+
+    public static class WithPrimitiveInt {
+
+        public int getInt() {
+            return 239;
+        }
+    }
+
+    /**
+     * element sources shall come out as array, with periodic flushes
+     */
+    @Test
+    public void testThatIteratorIsMarshalledAsArray() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        JSONMarshaller.marshall(writer, Arrays.asList(new GoodPrimitiveGetter(), null, new GoodPrimitiveGetter()).iterator(), 2);
+
+        new Verifications() {
+            {
+                writer.beginArray();
+                times = 1;
+                writer.value("foo");
+                times = 2;
+                writer.nullValue();
+                times = 1;
+                writer.endArray();
+                times = 1;
+                // after second element and at the end
+                writer.flush();
+                times = 2;
+            }
+        };
+    }
+
+    /**
+     * stream shall be consumed element by element
+     */
+    @Test
+    public void testThatStreamIsMarshalledAsArray() throws IOException, InvocationTargetException, NoSuchMethodException, IllegalAccessException {
+        new Expectations() {
+            {
+                writer.beginArray();
+                writer.beginObject();
+                writer.name("Int");
+                writer.value(239L);
+                writer.endObject();
+                writer.endArray();
+            }
+        };
+        JSONMarshaller.marshall(writer, Stream.of(new WithPrimitiveInt()));
+    }
 }
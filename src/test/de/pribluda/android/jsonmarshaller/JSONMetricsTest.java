@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * metrics are reported to listener installed for tests,  see {@link RecordingMetrics}
+ */
+public class JSONMetricsTest {
+
+    @Test
+    public void testThatListenerIsInstalled() {
+        assertTrue(Metrics.enabled);
+        assertTrue(Metrics.listener instanceof RecordingMetrics);
+    }
+
+    @Test
+    public void testThatMarshallingIsReported() throws Exception {
+        final long bytes = RecordingMetrics.count("bytesWritten");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final JSONByteWriter writer = new JSONByteWriter(out);
+
+        final Measured measured = new Measured();
+        measured.setNested(new Measured());
+        JSONMarshaller.marshall(writer, measured);
+        writer.flush();
+        writer.reset(out);
+        JSONMarshaller.marshall(writer, new Measured());
+        writer.flush();
+
+        assertEquals(3, RecordingMetrics.count("marshalled", Measured.class));
+        // number,  nested and empty
+        assertEquals(9, RecordingMetrics.count("marshalledProperties", Measured.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Measured.class));
+        assertEquals(3, RecordingMetrics.count("lookup" + JSONMetrics.Cache.GETTERS, Measured.class));
+        assertEquals(out.size(), RecordingMetrics.count("bytesWritten") - bytes);
+    }
+
+    /**
+     * codec reports properties it wrote,  class is not introspected
+     */
+    @Test
+    public void testThatCodecMarshallingIsReported() throws Exception {
+        final JSONByteWriter writer = new JSONByteWriter(new ByteArrayOutputStream());
+        JSONMarshaller.marshall(writer, new Coded());
+        writer.flush();
+
+        assertEquals(1, RecordingMetrics.count("marshalled", Coded.class));
+        assertEquals(2, RecordingMetrics.count("marshalledProperties", Coded.class));
+        assertEquals(0, RecordingMetrics.count("miss" + JSONMetrics.Cache.GETTERS, Coded.class));
+    }
+
+    @Test
+    public void testThatUnmarshallingIsReported() throws Exception {
+        final String json = "{\"Number\": 1, \"Unknown\": [1, 2], \"Nested\": {\"Number\": true, \"Unconvertible\": \"x\"}}";
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        final long read = RecordingMetrics.count("bytesRead");
+        final long unconvertibleNumbers = RecordingMetrics.count("unconvertible", Integer.TYPE);
+
+        final Parsed parsed = JSONUnmarshaller.unmarshall(new JSONByteReader(bytes), Parsed.class);
+
+        assertEquals(1, parsed.getNumber());
+        assertEquals(0, parsed.getNested().getNumber());
+        assertEquals(bytes.length, RecordingMetrics.count("bytesRead") - read);
+        assertEquals(2, RecordingMetrics.count("unmarshalled", Parsed.class));
+        assertEquals(4, RecordingMetrics.count("unmarshalledProperties", Parsed.class));
+        assertEquals(1, RecordingMetrics.count("skipped", Parsed.class));
+        assertEquals(1, RecordingMetrics.count("miss" + JSONMetrics.Cache.SETTERS, Parsed.class));
+        // boolean for number and string for class without string constructor
+        assertEquals(1, RecordingMetrics.count("unconvertible", Integer.TYPE) - unconvertibleNumbers);
+        assertEquals(1, RecordingMetrics.count("unconvertible", Unconvertible.class));
+    }
+
+    @Test
+    public void testThatFailedConversionIsReported() throws Exception {
+        final String json = "{\"Builder\": \"abc\", \"Width\": \"wide\"}";
+        final long chars = RecordingMetrics.count("charsRead");
+
+        final Converted converted = JSONUnmarshaller.unmarshall(json, Converted.class);
+
+        assertEquals(json.length(), RecordingMetrics.count("charsRead") - chars);
+        assertEquals("abc", converted.getBuilder().toString());
+        assertNull(converted.getWidth());
+        assertEquals(1, RecordingMetrics.count("conversionFailed", BigDecimal.class));
+    }
+
+    /**
+     * numbers parsed without boxing report their failures as well,  exception is passed on
+     */
+    @Test
+    public void testThatFailedNumberIsReported() throws Exception {
+        final long before = RecordingMetrics.count("conversionFailed", Integer.TYPE);
+        try {
+            JSONUnmarshaller.unmarshall("{\"Number\": \"one\"}", Parsed.class);
+            fail("shall bomb on non numeric string");
+        } catch (NumberFormatException e) {
+            // anticipated
+        }
+        assertEquals(1, RecordingMetrics.count("conversionFailed", Integer.TYPE) - before);
+
+        try {
+            JSONUnmarshaller.unmarshall(new JSONByteReader("{\"Numbers\": [1, \"two\"]}".getBytes(StandardCharsets.UTF_8)), Parsed.class);
+            fail("shall bomb on non numeric element");
+        } catch (NumberFormatException e) {
+            // anticipated
+        }
+        assertEquals(2, RecordingMetrics.count("conversionFailed", Integer.TYPE) - before);
+    }
+
+    @Test
+    public void testThatUnknownEnumConstantIsReported() throws Exception {
+        final long before = RecordingMetrics.count("unconvertible", EnumMarshallingTest.Status.class);
+
+        JSONUnmarshaller.unmarshall("{\"Status\": \"shipped\"}", EnumMarshallingTest.Order.class);
+
+        assertEquals(1, RecordingMetrics.count("unconvertible", EnumMarshallingTest.Status.class) - before);
+    }
+
+    public static class Measured {
+        private int number;
+        private Measured nested;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public Measured getNested() {
+            return nested;
+        }
+
+        public void setNested(Measured nested) {
+            this.nested = nested;
+        }
+
+        public boolean isEmpty() {
+            return nested == null;
+        }
+    }
+
+    public static class Parsed {
+        private int number;
+        private Parsed nested;
+        private Unconvertible unconvertible;
+        private int[] numbers;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public Parsed getNested() {
+            return nested;
+        }
+
+        public void setNested(Parsed nested) {
+            this.nested = nested;
+        }
+
+        public Unconvertible getUnconvertible() {
+            return unconvertible;
+        }
+
+        public int[] getNumbers() {
+            return numbers;
+        }
+
+        public void setNumbers(int[] numbers) {
+            this.numbers = numbers;
+        }
+
+        public void setUnconvertible(Unconvertible unconvertible) {
+            this.unconvertible = unconvertible;
+        }
+    }
+
+    public static class Converted {
+        private StringBuilder builder;
+        private BigDecimal width;
+
+        public StringBuilder getBuilder() {
+            return builder;
+        }
+
+        public void setBuilder(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        public BigDecimal getWidth() {
+            return width;
+        }
+
+        public void setWidth(BigDecimal width) {
+            this.width = width;
+        }
+    }
+
+    public static class Coded {
+        public int getNumber() {
+            return 1;
+        }
+
+        /**
+         * stands for generated code,  binary name is Coded$$JSONCodec
+         */
+        public static class $JSONCodec implements JSONCodec<Coded> {
+            public Coded newInstance() {
+                return new Coded();
+            }
+
+            public int marshallProperties(JSONOutput writer, Coded bean) throws IOException {
+                writer.name("number");
+                writer.value(bean.getNumber());
+                writer.name("twice");
+                writer.value(bean.getNumber() * 2);
+                return 2;
+            }
+
+            public boolean unmarshallProperty(JSONInput reader, String name, Coded bean) {
+                return false;
+            }
+        }
+    }
+
+    public static class Unconvertible {
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * test interning of strings
+ */
+public class JSONStringTableTest {
+
+    @Test
+    public void testThatEqualStringsAreCanonical() {
+        final JSONStringTable table = new JSONStringTable(16);
+        final String first = new String("active");
+
+        assertSame(first, table.intern(first));
+        assertSame(first, table.intern(new String("active")));
+        assertNull(table.intern(null));
+    }
+
+    @Test
+    public void testThatLongStringsAreNotInterned() {
+        final JSONStringTable table = new JSONStringTable(16, 4);
+        table.intern("longer");
+
+        final String other = new String("longer");
+        assertSame(other, table.intern(other));
+    }
+
+    /**
+     * single set of four entries - referenced entry gets second chance,  the next one is evicted
+     */
+    @Test
+    public void testThatClockEvictsUnreferencedEntries() {
+        final JSONStringTable table = new JSONStringTable(1);
+        final String a = table.intern(new String("a"));
+        table.intern("b");
+        table.intern("c");
+        table.intern("d");
+        assertSame(a, table.intern(new String("a")));
+
+        table.intern("e");
+
+        assertSame(a, table.intern(new String("a")));
+        final String b = new String("b");
+        assertSame(b, table.intern(b));
+    }
+
+    /**
+     * byte reader looks names and values up without decoding them,  escaped values are decoded first
+     */
+    @Test
+    public void testThatByteReaderInternsBytes() throws Exception {
+        final JSONStringTable table = new JSONStringTable(16);
+        final String canonical = table.intern(new String("status"));
+        final String escaped = table.intern(new String("a\"b"));
+        final JSONByteReader reader = new JSONByteReader("{\"status\": \"a\\\"b\", \"other\": 12}".getBytes(StandardCharsets.UTF_8));
+
+        reader.beginObject();
+        assertSame(canonical, reader.nextName(table));
+        assertSame(escaped, reader.nextString(table));
+        assertEquals("other", reader.nextName());
+        assertEquals("12", reader.nextString(table));
+        reader.endObject();
+    }
+
+    @Test
+    public void testThatUnmarshallerInternsValues() throws Exception {
+        final String json = "[{\"Status\": \"open\", \"Code\": 1}, {\"Status\": \"open\", \"Code\": 2}, {\"Status\": \"\\u00fcber\"}, {\"Status\": \"\\u00fcber\"}]";
+        JSONUnmarshaller.setStringTable(new JSONStringTable(64));
+        try {
+            final List<Record> bytes = JSONUnmarshaller.unmarshallArray(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Record.class);
+            final List<Record> gson = JSONUnmarshaller.unmarshallArray(new JsonReader(new StringReader(json)), Record.class);
+
+            assertEquals("open", bytes.get(0).getStatus());
+            assertSame(bytes.get(0).getStatus(), bytes.get(1).getStatus());
+            assertSame(bytes.get(0).getStatus(), gson.get(1).getStatus());
+            assertEquals("\u00fcber", bytes.get(2).getStatus());
+            assertSame(bytes.get(2).getStatus(), bytes.get(3).getStatus());
+            assertSame(bytes.get(2).getStatus(), gson.get(3).getStatus());
+            assertEquals(2, gson.get(1).getCode());
+        } finally {
+            JSONUnmarshaller.setStringTable(null);
+        }
+
+        final List<Record> plain = JSONUnmarshaller.unmarshallArray(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Record.class);
+        assertNotSame(plain.get(0).getStatus(), plain.get(1).getStatus());
+    }
+
+    public static class Record {
+        private String status;
+        private int code;
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public void setCode(int code) {
+            this.code = code;
+        }
+    }
+}
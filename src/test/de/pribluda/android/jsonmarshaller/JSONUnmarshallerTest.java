@@ -22,8 +22,21 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -435,4 +448,750 @@ public class JSONUnmarshallerTest {
         }
     }
 
+    /**
+     * primitive float shall be set as well
+     */
+    @Test
+    public void testThatPrimitiveFloatIsSet() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        source = new JsonReader(new StringReader("{value:1.5}"));
+        source.setLenient(true);
+
+        final WithFloat withFloat = JSONUnmarshaller.unmarshall(source, WithFloat.class);
+        assertEquals(1.5f, withFloat.getValue(), 0f);
+    }
+
+    public static class WithFloat {
+        float value;
+
+        public float getValue() {
+            return value;
+        }
+
+        public void setValue(float value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * null value shall leave property untouched
+     */
+    @Test
+    public void testThatNullValueIsIgnored() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        source = new JsonReader(new StringReader("{foo:null}"));
+        source.setLenient(true);
+
+        final WithObjectChar withObjectChar = JSONUnmarshaller.unmarshall(source, WithObjectChar.class);
+        assertNull(withObjectChar.getFoo());
+    }
+
+    /**
+     * generated codec shall be used instead of introspection if present
+     */
+    @Test
+    public void testThatGeneratedCodecIsUsed() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        source = new JsonReader(new StringReader("{value:'blam', ignored:1}"));
+        source.setLenient(true);
+
+        final WithCodec withCodec = JSONUnmarshaller.unmarshall(source, WithCodec.class);
+        assertEquals("codec:blam", withCodec.getValue());
+    }
+
+    public static class WithCodec {
+        String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        /**
+         * stands for generated code,  binary name is WithCodec$$JSONCodec
+         */
+        public static class $JSONCodec implements JSONCodec<WithCodec> {
+            public WithCodec newInstance() {
+                return new WithCodec();
+            }
+
+            public int marshallProperties(JSONOutput writer, WithCodec bean) {
+                return 0;
+            }
+
+            public boolean unmarshallProperty(JSONInput reader, String name, WithCodec bean) throws IOException {
+                if ("value".equals(name)) {
+                    bean.setValue("codec:" + reader.nextString());
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * metadata caches are shared between threads and shall survive concurrent population
+     */
+    @Test
+    public void testConcurrentUnmarshalling() throws InterruptedException {
+        final AtomicInteger failures = new AtomicInteger();
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 100; j++) {
+                            WithTwoProperties bean = JSONUnmarshaller.unmarshall("{\"one\":" + j + ", \"two\":\"2\"}", WithTwoProperties.class);
+                            if (bean.getOne() != j || bean.getTwo() != 2) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+    }
+
+    /**
+     * JSON lines shall be bound in parallel and come back in input order
+     */
+    @Test
+    public void testThatLinesAreUnmarshalledInOrder() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.append("{\"one\":").append(i).append(", \"two\":\"2\"}\n");
+            if (i % 100 == 0) {
+                lines.append("\n");
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final List<WithTwoProperties> beans = JSONUnmarshaller.unmarshallLines(new StringReader(lines.toString()), WithTwoProperties.class, pool);
+
+            assertEquals(1000, beans.size());
+            for (int i = 0; i < beans.size(); i++) {
+                assertEquals(i, beans.get(i).getOne());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * unordered delivery shall still deliver everything exactly once on calling thread
+     */
+    @Test
+    public void testThatLinesAreDeliveredUnordered() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.append("{\"one\":").append(i).append("}\n");
+        }
+        final BitSet seen = new BitSet();
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger foreign = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            JSONUnmarshaller.unmarshallLines(new StringReader(lines.toString()), WithTwoProperties.class, pool, 7, false, new Consumer<WithTwoProperties>() {
+                public void accept(WithTwoProperties bean) {
+                    assertFalse(seen.get(bean.getOne()));
+                    seen.set(bean.getOne());
+                    if (Thread.currentThread() != caller) {
+                        foreign.incrementAndGet();
+                    }
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1000, seen.cardinality());
+        assertEquals(0, foreign.get());
+    }
+
+    /**
+     * broken line shall surface with its own exception
+     */
+    @Test
+    public void testThatBrokenLineIsReported() throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            JSONUnmarshaller.unmarshallLines(new StringReader("{\"one\":1}\n{\"one\":\n"), WithTwoProperties.class, pool);
+            fail("shall bomb on broken line");
+        } catch (IOException e) {
+            // anticipated
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * failing setter shall surface as invocation target exception also when order is not kept
+     */
+    @Test
+    public void testThatFailingSetterIsReportedUnordered() throws IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            JSONUnmarshaller.unmarshallLines(new StringReader("{\"value\":\"one\"}\n{\"value\":\"two\"}\n"), Refusing.class, pool, 1, false, new Consumer<Refusing>() {
+                public void accept(Refusing refusing) {
+                }
+            });
+            fail("shall bomb on failing setter");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static class Refusing {
+        public void setValue(String value) {
+            throw new IllegalStateException("refused");
+        }
+    }
+
+    /**
+     * file shall be parsed straight from mapped bytes
+     */
+    @Test
+    public void testThatMappedFileIsUnmarshalled() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final Path file = Files.createTempFile("mapped", ".json");
+        try {
+            Files.write(file, "[{\"one\":1, \"two\":2}, {\"one\":3}]".getBytes(StandardCharsets.UTF_8));
+
+            final List<WithTwoProperties> beans = JSONUnmarshaller.unmarshallArray(file, WithTwoProperties.class);
+
+            assertEquals(2, beans.size());
+            assertEquals(2, beans.get(0).getTwo());
+            assertEquals(3, beans.get(1).getOne());
+
+            Files.write(file, "{\"String\":\"gr\u00fc\u00dfe \u20ac \ud83d\ude00\"}".getBytes(StandardCharsets.UTF_8));
+            assertEquals("gr\u00fc\u00dfe \u20ac \ud83d\ude00", JSONUnmarshaller.unmarshall(file, WithStringField.class).getString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * multibyte sequences crossing window borders shall be decoded like by standard decoder
+     */
+    @Test
+    public void testThatMappedReaderDecodesAcrossWindows() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("a\u00e4\u20ac\ud83d\ude00");
+        }
+        final Path file = Files.createTempFile("mapped", ".txt");
+        try {
+            final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            // truncated sequence at the end
+            Files.write(file, Arrays.copyOf(bytes, bytes.length + 1));
+            Files.write(file, new byte[]{(byte) 0xe2}, StandardOpenOption.APPEND);
+            final FileChannel channel = FileChannel.open(file);
+            try {
+                for (int window : new int[]{5, 7, 4096}) {
+                    channel.position(0);
+                    final MappedReader reader = new MappedReader(channel, window);
+                    final StringBuilder decoded = new StringBuilder();
+                    final char[] chars = new char[3];
+                    int read;
+                    while ((read = reader.read(chars)) > 0) {
+                        decoded.append(chars, 0, read);
+                    }
+                    assertEquals(text + "\u0000\ufffd", decoded.toString());
+                }
+            } finally {
+                channel.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * existing instance shall be populated,  together with nested objects and arrays of matching size
+     */
+    @Test
+    public void testThatExistingInstanceIsReused() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final Reusable target = new Reusable();
+        target.setName("kept");
+        final Reusable nested = new Reusable();
+        target.setNested(nested);
+        final int[] ints = new int[2];
+        target.setInts(ints);
+        final double[] doubles = new double[2];
+        target.setDoubles(doubles);
+        final Reusable element = new Reusable();
+        final Reusable[] children = {element};
+        target.setChildren(children);
+
+        final String json = "{\"Number\": 1, \"Nested\": {\"Number\": 2}, \"Ints\": [3, 4], \"Doubles\": [5],"
+                + " \"Children\": [{\"Number\": 6}]}";
+        assertSame(target, JSONUnmarshaller.unmarshallInto(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), target));
+
+        assertEquals(1, target.getNumber());
+        assertEquals("kept", target.getName());
+        assertSame(nested, target.getNested());
+        assertEquals(2, nested.getNumber());
+        assertSame(ints, target.getInts());
+        assertArrayEquals(new int[]{3, 4}, ints);
+        // size differs - fresh array
+        assertArrayEquals(new double[]{5}, target.getDoubles(), 0);
+        assertSame(children, target.getChildren());
+        assertSame(element, children[0]);
+        assertEquals(6, element.getNumber());
+    }
+
+    /**
+     * arrays of other size are replaced,  original arrays and their elements stay untouched
+     */
+    @Test
+    public void testThatMismatchingArraysAreLeftIntact() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        for (String payload : new String[]{"{\"Ints\": [7], \"Children\": [{\"Number\": 8}]}",
+                "{\"Ints\": [7, 8, 9], \"Children\": [{\"Number\": 8}, {\"Number\": 9}, {\"Number\": 10}]}"}) {
+            for (boolean bytes : new boolean[]{true, false}) {
+                final Reusable target = new Reusable();
+                final int[] ints = {1, 2};
+                target.setInts(ints);
+                final Reusable first = new Reusable();
+                first.setNumber(1);
+                final Reusable second = new Reusable();
+                second.setNumber(2);
+                final Reusable[] children = {first, second};
+                target.setChildren(children);
+
+                JSONUnmarshaller.unmarshallInto(bytes ? new JSONByteReader(payload.getBytes(StandardCharsets.UTF_8))
+                        : new GsonInput(new JsonReader(new StringReader(payload))), target);
+
+                assertArrayEquals(new int[]{1, 2}, ints);
+                assertNotSame(ints, target.getInts());
+                assertEquals(7, target.getInts()[0]);
+                assertSame(first, children[0]);
+                assertSame(second, children[1]);
+                assertEquals(1, first.getNumber());
+                assertEquals(2, second.getNumber());
+                assertNotSame(children, target.getChildren());
+                assertEquals(8, target.getChildren()[0].getNumber());
+            }
+        }
+    }
+
+    /**
+     * absent nested objects are created as usual
+     */
+    @Test
+    public void testThatAbsentNestedObjectIsCreated() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final Reusable target = new Reusable();
+        source = new JsonReader(new StringReader("{\"Nested\": {\"Name\": \"fresh\"}, \"Children\": [{}, {}]}"));
+
+        JSONUnmarshaller.unmarshallInto(source, target);
+
+        assertEquals("fresh", target.getNested().getName());
+        assertEquals(2, target.getChildren().length);
+    }
+
+    /**
+     * only projected properties are bound,  paths continue through arrays and nested objects
+     */
+    @Test
+    public void testThatOnlyProjectedPropertiesAreBound() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final String json = "{\"Number\": 1, \"Name\": \"root\", \"Nested\": {\"Number\": 2, \"Name\": \"nested\"},"
+                + " \"Ints\": [3, 4], \"Children\": [{\"Number\": 5, \"Name\": \"child\", \"Ints\": [6]}]}";
+        final JSONProjection projection = JSONProjection.of("name", "Nested.Number", "Children.Name");
+
+        final Reusable result = JSONUnmarshaller.unmarshall(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Reusable.class, projection);
+
+        assertEquals(0, result.getNumber());
+        assertEquals("root", result.getName());
+        assertEquals(2, result.getNested().getNumber());
+        assertNull(result.getNested().getName());
+        assertNull(result.getInts());
+        assertEquals(1, result.getChildren().length);
+        assertEquals("child", result.getChildren()[0].getName());
+        assertEquals(0, result.getChildren()[0].getNumber());
+        assertNull(result.getChildren()[0].getInts());
+    }
+
+    /**
+     * complete property overrides narrower paths,  and skipped subtrees need not be
+     * valid for target type
+     */
+    @Test
+    public void testThatCompletePropertyOverridesPath() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        source = new JsonReader(new StringReader("{\"Nested\": {\"Number\": 2, \"Name\": \"nested\"},"
+                + " \"Children\": {\"unexpected\": [true, null, {}]}}"));
+
+        final Reusable result = JSONUnmarshaller.unmarshall(source, Reusable.class, JSONProjection.of("Nested.Name", "Nested"));
+
+        assertEquals(2, result.getNested().getNumber());
+        assertEquals("nested", result.getNested().getName());
+        assertNull(result.getChildren());
+    }
+
+    /**
+     * projection also restricts update of existing instance
+     */
+    @Test
+    public void testThatProjectionRestrictsReuse() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final Reusable target = new Reusable();
+        final Reusable nested = new Reusable();
+        nested.setName("kept");
+        target.setNested(nested);
+
+        JSONUnmarshaller.unmarshallInto(new JSONByteReader("{\"Number\": 1, \"Nested\": {\"Number\": 2, \"Name\": \"lost\"}}".getBytes(StandardCharsets.UTF_8)),
+                target, JSONProjection.of("Nested.Number"));
+
+        assertEquals(0, target.getNumber());
+        assertSame(nested, target.getNested());
+        assertEquals(2, nested.getNumber());
+        assertEquals("kept", nested.getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatEmptyProjectionNameIsRejected() {
+        JSONProjection.of("Nested..Number");
+    }
+
+    /**
+     * scalars are bound right away,  nested values are decoded once on first access
+     */
+    @Test
+    public void testThatLazyObjectDecodesNestedValuesOnAccess() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final String json = "{\"Number\": 1, \"name\": \"root\", \"Active\": true, \"Unknown\": [1, 2],"
+                + " \"Nested\": {\"Number\": 2, \"Children\": [{\"Number\": 3}, null, {\"Number\": 4}]},"
+                + " \"Ints\": [5, 6]}";
+
+        final Lazy lazy = JSONUnmarshaller.unmarshallLazy(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Lazy.class);
+
+        assertEquals(1, lazy.getNumber());
+        assertEquals("root", lazy.getName());
+        assertTrue(lazy.isActive());
+        assertArrayEquals(new int[]{5, 6}, lazy.getInts());
+        final Lazy nested = lazy.getNested();
+        assertSame(nested, lazy.getNested());
+        assertEquals(2, nested.getNumber());
+        assertNull(nested.getName());
+        assertNull(nested.getNested());
+        assertFalse(nested.isActive());
+        assertEquals(2, nested.getChildren().length);
+        assertEquals(3, nested.getChildren()[0].getNumber());
+        assertEquals(4, nested.getChildren()[1].getNumber());
+    }
+
+    /**
+     * broken nested value is not noticed until it is accessed
+     */
+    @Test
+    public void testThatLazyObjectDefersDecoding() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        final String json = "{\"Number\": 1, \"Nested\": {\"Number\": tru}}";
+
+        final Lazy lazy = JSONUnmarshaller.unmarshallLazy(new JSONByteReader(json.getBytes(StandardCharsets.UTF_8)), Lazy.class);
+        assertEquals(1, lazy.getNumber());
+
+        try {
+            lazy.getNested();
+            fail("broken nested object was decoded");
+        } catch (UncheckedIOException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatLazyObjectRequiresInterface() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        JSONUnmarshaller.unmarshallLazy(new JSONByteReader("{}".getBytes(StandardCharsets.UTF_8)), Reusable.class);
+    }
+
+    public interface Lazy {
+        int getNumber();
+
+        String getName();
+
+        boolean isActive();
+
+        int[] getInts();
+
+        Lazy getNested();
+
+        Lazy[] getChildren();
+    }
+
+    public static class Reusable {
+        private int number;
+        private String name;
+        private Reusable nested;
+        private int[] ints;
+        private double[] doubles;
+        private Reusable[] children;
+
+        public int getNumber() {
+            return number;
+        }
+
+        public void setNumber(int number) {
+            this.number = number;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Reusable getNested() {
+            return nested;
+        }
+
+        public void setNested(Reusable nested) {
+            this.nested = nested;
+        }
+
+        public int[] getInts() {
+            return ints;
+        }
+
+        public void setInts(int[] ints) {
+            this.ints = ints;
+        }
+
+        public double[] getDoubles() {
+            return doubles;
+        }
+
+        public void setDoubles(double[] doubles) {
+            this.doubles = doubles;
+        }
+
+        public Reusable[] getChildren() {
+            return children;
+        }
+
+        public void setChildren(Reusable[] children) {
+            this.children = children;
+        }
+    }
+
+    /**
+     * primitive arrays of any size shall be collected and trimmed to exact size
+     */
+    @Test
+    public void testPrimitiveArraysAreCollected() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        StringBuilder json = new StringBuilder("{doubles:[");
+        for (int i = 0; i < 100; i++) {
+            json.append(i > 0 ? "," : "").append(i).append(".5");
+        }
+        json.append("], floats:[0.1, null, '0.2'], chars:['a', '', 'b'], longs:[[1],[],[2,3]]}");
+        source = new JsonReader(new StringReader(json.toString()));
+        source.setLenient(true);
+
+        final WithPrimitiveArrays arrays = JSONUnmarshaller.unmarshall(source, WithPrimitiveArrays.class);
+
+        assertEquals(100, arrays.getDoubles().length);
+        assertEquals(99.5, arrays.getDoubles()[99], 0);
+        assertArrayEquals(new float[]{0.1f, 0.2f}, arrays.getFloats(), 0);
+        assertArrayEquals(new char[]{'a', 'b'}, arrays.getChars());
+        assertEquals(3, arrays.getLongs().length);
+        assertEquals(0, arrays.getLongs()[1].length);
+        assertArrayEquals(new long[]{2, 3}, arrays.getLongs()[2]);
+    }
+
+    public static class WithPrimitiveArrays {
+        double[] doubles;
+        float[] floats;
+        char[] chars;
+        long[][] longs;
+
+        public double[] getDoubles() {
+            return doubles;
+        }
+
+        public void setDoubles(double[] doubles) {
+            this.doubles = doubles;
+        }
+
+        public float[] getFloats() {
+            return floats;
+        }
+
+        public void setFloats(float[] floats) {
+            this.floats = floats;
+        }
+
+        public char[] getChars() {
+            return chars;
+        }
+
+        public void setChars(char[] chars) {
+            this.chars = chars;
+        }
+
+        public long[][] getLongs() {
+            return longs;
+        }
+
+        public void setLongs(long[][] longs) {
+            this.longs = longs;
+        }
+    }
+
+    /**
+     * all primitive kinds shall be set directly
+     */
+    @Test
+    public void testPrimitivePropertiesAreSet() throws InvocationTargetException, IOException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        source = new JsonReader(new StringReader("{long:12345678901, double:0.25, short:'7', byte:-3, boolean:'true', primitive:true}"));
+        source.setLenient(true);
+
+        final WithPrimitives primitives = JSONUnmarshaller.unmarshall(source, WithPrimitives.class);
+        assertEquals(12345678901L, primitives.getLong());
+        assertEquals(0.25, primitives.getDouble(), 0);
+        assertEquals(7, primitives.getShort());
+        assertEquals(-3, primitives.getByte());
+        assertTrue(primitives.isBoolean());
+        // boolean is no number and shall be ignored
+        assertEquals(0, primitives.getPrimitive());
+    }
+
+    public static class WithPrimitives {
+        long longValue;
+        double doubleValue;
+        short shortValue;
+        byte byteValue;
+        boolean booleanValue;
+        int primitive;
+
+        public long getLong() {
+            return longValue;
+        }
+
+        public void setLong(long longValue) {
+            this.longValue = longValue;
+        }
+
+        public double getDouble() {
+            return doubleValue;
+        }
+
+        public void setDouble(double doubleValue) {
+            this.doubleValue = doubleValue;
+        }
+
+        public short getShort() {
+            return shortValue;
+        }
+
+        public void setShort(short shortValue) {
+            this.shortValue = shortValue;
+        }
+
+        public byte getByte() {
+            return byteValue;
+        }
+
+        public void setByte(byte byteValue) {
+            this.byteValue = byteValue;
+        }
+
+        public boolean isBoolean() {
+            return booleanValue;
+        }
+
+        public void setBoolean(boolean booleanValue) {
+            this.booleanValue = booleanValue;
+        }
+
+        public int getPrimitive() {
+            return primitive;
+        }
+
+        public void setPrimitive(int primitive) {
+            this.primitive = primitive;
+        }
+    }
+
+    /**
+     * setter table shall capitalise only first character of key
+     */
+    @Test
+    public void testSetterTableLookup() {
+        final SetterTable table = JSONUnmarshaller.methodCache.get(WithPrimitives.class);
+
+        assertEquals(6, table.size);
+        assertEquals("setLong", table.get("long").method.getName());
+        assertEquals("setLong", table.get("Long").method.getName());
+        assertEquals("setPrimitive", table.get("primitive").method.getName());
+        assertNull(table.get("LONG"));
+        assertNull(table.get("lon"));
+        assertNull(table.get(""));
+    }
+
+    /**
+     * primitive accessors also take boxed values,  as generic paths hand them over
+     */
+    @Test
+    public void testThatPrimitiveAccessorsTakeBoxedValues() throws Exception {
+        final WithPrimitives bean = new WithPrimitives();
+        final Setter setter = Setter.create(WithPrimitives.class.getMethod("setPrimitive", Integer.TYPE));
+        final Getter getter = Getter.create("Primitive", WithPrimitives.class.getMethod("getPrimitive"));
+
+        setter.set(bean, 239);
+
+        assertEquals(239, bean.getPrimitive());
+        assertEquals(239, getter.get(bean));
+    }
+
+    /**
+     * array shall be iterated lazily and reader closed at the end
+     */
+    @Test
+    public void testIterationOverJsonArray() throws IOException {
+        final boolean[] closed = new boolean[1];
+        source = new JsonReader(new StringReader("[{one:239},{two:555},{one:1}]") {
+            @Override
+            public void close() {
+                closed[0] = true;
+                super.close();
+            }
+        });
+        source.setLenient(true);
+
+        final Iterator<WithTwoProperties> iterator = JSONUnmarshaller.iterate(source, WithTwoProperties.class);
+        assertTrue(iterator.hasNext());
+        assertEquals(239, iterator.next().getOne());
+        assertEquals(555, iterator.next().getTwo());
+        assertFalse(closed[0]);
+        assertEquals(1, iterator.next().getOne());
+        assertFalse(iterator.hasNext());
+        assertTrue(closed[0]);
+    }
+
+    /**
+     * closing stream shall close reader
+     */
+    @Test
+    public void testStreamOverJsonArray() throws IOException {
+        final boolean[] closed = new boolean[1];
+        source = new JsonReader(new StringReader("[{one:1},{one:2},{one:3}]") {
+            @Override
+            public void close() {
+                closed[0] = true;
+                super.close();
+            }
+        });
+        source.setLenient(true);
+
+        final Stream<WithTwoProperties> stream = JSONUnmarshaller.stream(source, WithTwoProperties.class);
+        assertEquals(1, stream.limit(1).findFirst().get().getOne());
+        assertFalse(closed[0]);
+        stream.close();
+        assertTrue(closed[0]);
+    }
+
 }
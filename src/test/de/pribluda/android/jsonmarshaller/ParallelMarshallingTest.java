@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import com.google.gson.stream.JsonWriter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * parallel marshalling of big arrays writes real output,  so it lives apart from mocked writer tests
+ */
+public class ParallelMarshallingTest {
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * chunks shall be concatenated in order,  giving the same output as sequential marshalling
+     */
+    @Test
+    public void testThatChunksAreConcatenatedInOrder() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final Object[] array = new Object[10001];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i % 7 == 0 ? null : i % 3 == 0 ? "string " + i : new Element(i);
+        }
+
+        final StringWriter parallel = new StringWriter();
+        JSONMarshaller.marshallArray(parallel, array, pool, 100, 4);
+
+        assertEquals(sequential(array), parallel.toString());
+    }
+
+    /**
+     * short arrays go sequential way
+     */
+    @Test
+    public void testThatShortArrayIsWrittenDirectly() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final Object[] array = {new Element(1), new Element(2)};
+
+        final StringWriter out = new StringWriter();
+        JSONMarshaller.marshallArray(out, array, pool);
+
+        assertEquals("[{\"Value\":1},{\"Value\":2}]", out.toString());
+    }
+
+    /**
+     * empty array shall stay array
+     */
+    @Test
+    public void testThatEmptyArrayIsWritten() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final StringWriter out = new StringWriter();
+        JSONMarshaller.marshallArray(out, new Object[0], pool, 0, 4);
+
+        assertEquals("[]", out.toString());
+    }
+
+    /**
+     * exception of getter on worker shall come out as it would in sequential mode
+     */
+    @Test
+    public void testThatWorkerFailureIsPropagated() throws NoSuchMethodException, IllegalAccessException, IOException {
+        final Object[] array = new Object[1000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i == 500 ? new Failing() : new Element(i);
+        }
+        try {
+            JSONMarshaller.marshallArray(new StringWriter(), array, pool, 10, 4);
+            fail("shall bomb on failing getter");
+        } catch (InvocationTargetException e) {
+            // anticipated
+        }
+    }
+
+    private static String sequential(Object[] array) throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, IOException {
+        final StringWriter out = new StringWriter();
+        final JsonWriter writer = new JsonWriter(out);
+        JSONMarshaller.marshallArray(writer, array);
+        writer.flush();
+        return out.toString();
+    }
+
+    public static class Element {
+        private final int value;
+
+        public Element() {
+            this(0);
+        }
+
+        public Element(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    public static class Failing {
+        public String getValue() {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010. Konstantin Pribluda (konstantin.pribluda@gmail.com)
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package de.pribluda.android.jsonmarshaller;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * metrics listener installed through META-INF/services of src/test/metrics,  which is on classpath
+ * of metrics test run only.  Counts events by name and class
+ */
+public class RecordingMetrics implements JSONMetrics {
+    private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+    static long count(String event, Class type) {
+        final LongAdder counter = counters.get(key(event, type));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    static long count(String event) {
+        return count(event, null);
+    }
+
+    private static String key(String event, Class type) {
+        return type == null ? event : event + ':' + type.getName();
+    }
+
+    private static void add(String event, Class type, long amount) {
+        counters.computeIfAbsent(key(event, type), k -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    public void marshalled(Class type, int properties, long nanos) {
+        add("marshalled", type, 1);
+        add("marshalledProperties", type, properties);
+    }
+
+    @Override
+    public void unmarshalled(Class type, int properties, long nanos) {
+        add("unmarshalled", type, 1);
+        add("unmarshalledProperties", type, properties);
+    }
+
+    @Override
+    public void bytesWritten(long count) {
+        add("bytesWritten", null, count);
+    }
+
+    @Override
+    public void bytesRead(long count) {
+        add("bytesRead", null, count);
+    }
+
+    @Override
+    public void charsWritten(long count) {
+        add("charsWritten", null, count);
+    }
+
+    @Override
+    public void charsRead(long count) {
+        add("charsRead", null, count);
+    }
+
+    @Override
+    public void cacheLookup(Cache cache, Class type) {
+        add("lookup" + cache, type, 1);
+    }
+
+    @Override
+    public void cacheMiss(Cache cache, Class type) {
+        add("miss" + cache, type, 1);
+    }
+
+    @Override
+    public void keySkipped(Class type, String key) {
+        add("skipped", type, 1);
+    }
+
+    @Override
+    public void conversionFailed(Class type, Object value, Exception cause) {
+        add(cause == null ? "unconvertible" : "conversionFailed", type, 1);
+    }
+}